@@ -1,42 +1,64 @@
-package student;
-
-/**
- * The AI class provides a baseline AI strategy for card playing, where the AI picks the
- * first valid card from its hand that can be played on the current card pile. This class serves as
- * the foundation for more advanced AI strategies in subclasses.
- */
-public class AI {
-
-    /**
-     * Determines the next valid card to play from the hand based on current card pile.
-     * Iterates through the hand and returns the first card that can be legally played on
-     * the top card of the card pile. If no valid card is found, returns null.
-     * @param hand The hand of cards available for the AI to play.
-     * @param cardPile The current card pile the AI needs to play on.
-     * @return The first valid card that can be played, or null
-     */
-    public Card getPlay(Hand hand, CardPile cardPile) {
-        // Iterate through each card in the hand
-        for (int i = 0; i < hand.getSize(); ++i) {
-            // Get the card at the current index
-            Card card = hand.get(i);
-            // If the card can be legally played on the current card pile, return it
-            if (cardPile.canPlay(hand.get(i))) {
-                return hand.get(i);
-            }
-        }
-        // If no valid card is found, return null
-        return null;
-    }
-
-    /**
-     * Provides the name of this AI class.
-     * This method is intended to return a string that identifies the AI type.
-     * @return "Random Card AI".
-     */
-    @Override
-    public String toString() {
-        // Base class always returns this name
-        return "Random Card AI";
-    }
-}
+package student;
+
+/**
+ * The AI class provides a baseline AI strategy for card playing, where the AI picks the
+ * first valid card from its hand that can be played on the current card pile. This class serves as
+ * the foundation for more advanced AI strategies in subclasses.
+ */
+public class AI {
+
+    /**
+     * Determines the next valid card to play from the hand based on current card pile.
+     * Iterates through the hand and returns the first card that can be legally played on
+     * the top card of the card pile. If no valid card is found, returns null.
+     * @param hand The hand of cards available for the AI to play.
+     * @param cardPile The current card pile the AI needs to play on.
+     * @return The first valid card that can be played, or null
+     */
+    public Card getPlay(Hand hand, CardPile cardPile) {
+        // The hand knows which of its cards are playable and returns the first of them in hand order,
+        // or null if no valid card is found
+        return hand.firstPlayable(cardPile);
+    }
+
+    /**
+     * Called by the match at the start of every game, before the first play.
+     * The base AI needs nothing from it, but strategies that look at more than their own hand
+     * (such as ones that search the game) can keep the hands here.
+     * @param hand the hand this AI plays from during the game.
+     * @param opponentHand the hand of the other player.
+     */
+    public void startGame(Hand hand, Hand opponentHand) {
+    }
+
+    /**
+     * Gets an AI that plays the same way as this one, for use by another match or thread.
+     * AIs that keep no state between calls can share one instance, so this one returns itself.
+     * AIs that do keep state must return a new instance.
+     * @return an AI playing the same strategy.
+     */
+    public AI copy() {
+        return this;
+    }
+
+    /**
+     * Determines if this AI always makes the same plays in the same game, so the results of its
+     * games can be cached. AIs whose plays depend on how much time they get, or on a generator
+     * that isn't seeded, must return false.
+     * @return true, since the base AI always plays the first playable card.
+     */
+    public boolean isDeterministic() {
+        return true;
+    }
+
+    /**
+     * Provides the name of this AI class.
+     * This method is intended to return a string that identifies the AI type.
+     * @return "Random Card AI".
+     */
+    @Override
+    public String toString() {
+        // Base class always returns this name
+        return "Random Card AI";
+    }
+}
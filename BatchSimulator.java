@@ -0,0 +1,549 @@
+package student;
+
+/**
+ * Plays many games of a match at once between two of the built-in strategies (AI, SmallestCardAI
+ * and BiggestCardAI), without any Deck, Hand, CardPile or AI objects.
+ * The games are kept as a structure of arrays, one entry (lane) per game: the deck orders, deck
+ * cursors, packed hands and hand masks, top cards, turns and scores. Every pass over the lanes
+ * plays one round of every game, and a lane whose game ends takes the next game number, so all
+ * lanes stay busy until the last games. The strategies are a few bit operations on the hand mask
+ * instead of a virtual call, and a hand is one long with a card code per byte, so finding the card
+ * to replace compares all of its slots at once instead of looping over them.
+ * Every game is dealt and played exactly like UnoWarMatch.playGame(i) with the same seed would,
+ * so the win counts are the same as the object model's, only faster.
+ * Variants (see RuleSet) are batched too, as long as a hand fits in one long.
+ */
+public class BatchSimulator {
+
+    /**
+     * Largest number of cards in a hand, one per byte of a long.
+     */
+    public static final int MAX_HAND_SIZE = 8;
+
+    /**
+     * Number of games played at once by default.
+     */
+    public static final int DEFAULT_LANES = 1024;
+
+    /**
+     * Every byte of a packed hand above its last card. No card code matches it, and as a shift
+     * distance it picks bit 63 of a playable mask, which is never set.
+     */
+    private static final long EMPTY_BYTES = 0xbfbfbfbfbfbfbfbfL;
+
+    /**
+     * A 1 in the lowest bit of every byte.
+     */
+    private static final long LOW_BYTES = 0x0101010101010101L;
+
+    /**
+     * A 1 in the highest bit of every byte.
+     */
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    /**
+     * Strategy of AI: the first playable card in hand order.
+     */
+    private static final int FIRST = 0;
+
+    /**
+     * Strategy of SmallestCardAI: the playable card with the lowest code.
+     */
+    private static final int SMALLEST = 1;
+
+    /**
+     * Strategy of BiggestCardAI: the playable card with the highest code.
+     */
+    private static final int BIGGEST = 2;
+
+    /**
+     * Number of cards in a deck.
+     */
+    private final int deckSize;
+
+    /**
+     * Number of cards in a hand.
+     */
+    private final int handSize;
+
+    /**
+     * Bytes of a packed hand above its last card, from EMPTY_BYTES.
+     */
+    private final long emptySlots;
+
+    /**
+     * Number of rounds a player needs to win the game.
+     */
+    private final int roundsToWin;
+
+    /**
+     * Rules the deck of every game is built from.
+     */
+    private final RuleSet rules;
+
+    /**
+     * Strategies of player 1 and player 2, at index 1 and 2.
+     */
+    private final int[] strategies = new int[3];
+
+    /**
+     * Seed of the match, from which the seed of every game is derived.
+     */
+    private final long seed;
+
+    /**
+     * Number of lanes.
+     */
+    private final int lanes;
+
+    /**
+     * Mask of the cards that can be played on every top card, copied from the play table of the rules.
+     */
+    private final long[] playableOn = new long[Card.NUM_CODES];
+
+    /**
+     * Generator used for shuffles. Each lane's own generator state is loaded into it and saved back.
+     */
+    private final SplitMixRandom random = new SplitMixRandom(0);
+
+    /**
+     * Deck order of every lane, deckSize codes per lane.
+     */
+    private final byte[] decks;
+
+    /**
+     * Index of the card drawn last in every lane, as in Deck.
+     */
+    private final int[] nextToDraw;
+
+    /**
+     * Number of cards drawn since the last shuffle in every lane, as in Deck.
+     */
+    private final int[] cardsGone;
+
+    /**
+     * State of the shuffle generator of every lane.
+     */
+    private final long[] randomStates;
+
+    /**
+     * Hands of every lane, player 1's then player 2's, packed one card code per byte in hand
+     * order, with emptySlots above the last card.
+     */
+    private final long[] hands;
+
+    /**
+     * Hand masks of every lane: player 1's, then player 2's.
+     */
+    private final long[] masks;
+
+    /**
+     * Code of the top card of the pile in every lane.
+     */
+    private final int[] tops;
+
+    /**
+     * Player to move in every lane, 1 or 2.
+     */
+    private final int[] turns;
+
+    /**
+     * Rounds won by player 1 in every lane.
+     */
+    private final int[] wins1;
+
+    /**
+     * Rounds won by player 2 in every lane.
+     */
+    private final int[] wins2;
+
+    /**
+     * Metrics the games are counted in, or null.
+     */
+    private SimulationMetrics metrics;
+
+    /**
+     * Number of rounds played in the current call of wins.
+     */
+    private long roundsPlayed;
+
+    /**
+     * Number of cards played in the current call of wins.
+     */
+    private long cardsPlayed;
+
+    /**
+     * Number of deck reshuffles in the current call of wins.
+     */
+    private long reshuffles;
+
+    /**
+     * Creates a simulator with the default number of lanes.
+     * @param ai1 AI for player 1, one of the built-in strategies.
+     * @param ai2 AI for player 2, one of the built-in strategies.
+     * @param seed seed of the match.
+     */
+    public BatchSimulator(AI ai1, AI ai2, long seed) {
+        this(ai1, ai2, seed, DEFAULT_LANES);
+    }
+
+    /**
+     * Creates a simulator.
+     * @param ai1 AI for player 1, one of the built-in strategies.
+     * @param ai2 AI for player 2, one of the built-in strategies.
+     * @param seed seed of the match.
+     * @param lanes number of games played at once, at least 1.
+     * @throws IllegalArgumentException if an AI isn't a built-in strategy.
+     */
+    public BatchSimulator(AI ai1, AI ai2, long seed, int lanes) {
+        this(ai1, ai2, seed, lanes, RuleSet.STANDARD);
+    }
+
+    /**
+     * Creates a simulator for the games of a variant.
+     * @param ai1 AI for player 1, one of the built-in strategies.
+     * @param ai2 AI for player 2, one of the built-in strategies.
+     * @param seed seed of the match.
+     * @param lanes number of games played at once, at least 1.
+     * @param rules rules every game is played with.
+     * @throws IllegalArgumentException if an AI isn't a built-in strategy or the hands are too big.
+     */
+    public BatchSimulator(AI ai1, AI ai2, long seed, int lanes, RuleSet rules) {
+        if (!supports(ai1) || !supports(ai2)) {
+            throw new IllegalArgumentException("Only AI, SmallestCardAI and BiggestCardAI can be batched");
+        }
+        if (!supports(rules)) {
+            throw new IllegalArgumentException("Hands of more than " + MAX_HAND_SIZE + " cards can't be batched");
+        }
+        if (lanes < 1) {
+            throw new IllegalArgumentException("lanes must be at least 1: " + lanes);
+        }
+        this.rules = rules;
+        this.deckSize = rules.getDeckSize();
+        this.handSize = rules.getHandSize();
+        this.roundsToWin = rules.getRoundsToWin();
+        // A full long has no byte left over, and a shift by 64 would shift by 0
+        this.emptySlots = handSize == MAX_HAND_SIZE ? 0 : EMPTY_BYTES << 8 * handSize;
+        this.strategies[1] = strategyOf(ai1);
+        this.strategies[2] = strategyOf(ai2);
+        this.seed = seed;
+        this.lanes = lanes;
+        this.decks = new byte[lanes * deckSize];
+        this.nextToDraw = new int[lanes];
+        this.cardsGone = new int[lanes];
+        this.randomStates = new long[lanes];
+        this.hands = new long[lanes * 2];
+        this.masks = new long[lanes * 2];
+        this.tops = new int[lanes];
+        this.turns = new int[lanes];
+        this.wins1 = new int[lanes];
+        this.wins2 = new int[lanes];
+        for (int top = 0; top < Card.NUM_CODES; top++) {
+            playableOn[top] = rules.getTable().playableOn(top);
+        }
+    }
+
+    /**
+     * Determines if an AI plays exactly like one of the strategies the simulator knows.
+     * Subclasses could play differently, so only these exact classes are accepted.
+     * @param ai the AI.
+     * @return true if games of this AI can be batched.
+     */
+    public static boolean supports(AI ai) {
+        Class<?> type = ai.getClass();
+        return type == AI.class || type == SmallestCardAI.class || type == BiggestCardAI.class;
+    }
+
+    /**
+     * Determines if the games of a variant can be batched, which needs every hand to fit in one long.
+     * @param rules rules of the games.
+     * @return true if games with these rules can be batched.
+     */
+    public static boolean supports(RuleSet rules) {
+        return rules.getHandSize() <= MAX_HAND_SIZE;
+    }
+
+    /**
+     * Gets the strategy of a supported AI.
+     * @param ai the AI.
+     * @return FIRST, SMALLEST or BIGGEST.
+     */
+    private static int strategyOf(AI ai) {
+        if (ai.getClass() == SmallestCardAI.class) {
+            return SMALLEST;
+        }
+        return ai.getClass() == BiggestCardAI.class ? BIGGEST : FIRST;
+    }
+
+    /**
+     * Sets the metrics that the games are counted in from now on. No AI is called, so no getPlay
+     * latency is recorded.
+     * @param metrics metrics to count games in, or null to stop counting them.
+     */
+    public void setMetrics(SimulationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Plays a range of game numbers of the match.
+     * @param firstGame number of the first game to play.
+     * @param games number of games to play.
+     * @return number of games won by player 1.
+     */
+    public long wins(long firstGame, long games) {
+        long nextGame = firstGame;
+        long endGame = firstGame + games;
+        long won = 0;
+        int active = 0;
+        long allocatedBefore = metrics == null ? 0 : SimulationMetrics.currentThreadAllocatedBytes();
+        roundsPlayed = 0;
+        cardsPlayed = 0;
+        reshuffles = 0;
+        while (active < lanes && nextGame < endGame) {
+            deal(active++, nextGame++);
+        }
+
+        while (active > 0) {
+            for (int lane = 0; lane < active; lane++) {
+                if (!playRound(lane)) {
+                    continue;
+                }
+                // The lane's game is over: count it and start the next one in its place
+                if (wins1[lane] == roundsToWin) {
+                    won++;
+                }
+                if (nextGame < endGame) {
+                    deal(lane, nextGame++);
+                } else {
+                    // No games left, so the last busy lane moves here and is looked at again
+                    moveLane(--active, lane);
+                    lane--;
+                }
+            }
+        }
+        if (metrics != null) {
+            metrics.addGames(games, roundsPlayed, cardsPlayed, reshuffles,
+                    SimulationMetrics.currentThreadAllocatedBytes() - allocatedBefore);
+        }
+        return won;
+    }
+
+    /**
+     * Plays a number of games of the match, starting from game 0, and returns the win rate.
+     * @param nTrials the number of games to simulate.
+     * @return fraction of games won by player 1.
+     */
+    public double winRate(long nTrials) {
+        return wins(0, nTrials) / (double) nTrials;
+    }
+
+    /**
+     * Plays the round being played in a lane to its end. The lane's state is kept in local
+     * variables while the round is played, as the player to move and the other player, which
+     * swap after every play instead of branching on whose turn it is.
+     * @param lane the lane.
+     * @return true if the round ended the game.
+     */
+    private boolean playRound(int lane) {
+        int deckBase = lane * deckSize;
+        int next = nextToDraw[lane];
+        int gone = cardsGone[lane];
+        int top = tops[lane];
+        boolean player1ToMove = turns[lane] == 1;
+        int moverIndex = player1ToMove ? lane * 2 : lane * 2 + 1;
+        int otherIndex = player1ToMove ? lane * 2 + 1 : lane * 2;
+        long mover = hands[moverIndex];
+        long other = hands[otherIndex];
+        long moverMask = masks[moverIndex];
+        long otherMask = masks[otherIndex];
+        int moverStrategy = strategies[player1ToMove ? 1 : 2];
+        int otherStrategy = strategies[player1ToMove ? 2 : 1];
+        int plays = 0;
+
+        while (true) {
+            long playable = moverMask & playableOn[top];
+            if (playable == 0) {
+                break;
+            }
+            int code;
+            if (moverStrategy == SMALLEST) {
+                code = Long.numberOfTrailingZeros(playable);
+            } else if (moverStrategy == BIGGEST) {
+                code = 63 - Long.numberOfLeadingZeros(playable);
+            } else {
+                code = firstPlayable(mover, playable);
+            }
+
+            // Draw the replacement, reshuffling like Deck.drawCode when the deck is used up
+            if (gone == deckSize) {
+                reshuffles++;
+                randomStates[lane] = shuffle(deckBase, randomStates[lane]);
+                next = 0;
+                gone = 1;
+            } else {
+                next = next == deckSize - 1 ? 0 : next + 1;
+                gone++;
+            }
+            long drawn = decks[deckBase + next];
+
+            // Replace the first copy of the card in hand, like Hand.remove does. The card's bit
+            // only leaves the mask if the hand held a single copy of it.
+            int shift = Long.numberOfTrailingZeros(matchingSlots(mover, code)) & ~7;
+            mover = mover & ~(0xffL << shift) | drawn << shift;
+            long kept = matchingSlots(mover, code) == 0 ? 0 : 1L << code;
+            long played = moverMask & ~(1L << code) | kept | 1L << drawn;
+
+            // The other player moves next
+            top = code;
+            moverMask = otherMask;
+            otherMask = played;
+            long hand = mover;
+            mover = other;
+            other = hand;
+            int strategy = moverStrategy;
+            moverStrategy = otherStrategy;
+            otherStrategy = strategy;
+            plays++;
+        }
+
+        // The player to move is stuck, so the other player wins the round
+        roundsPlayed++;
+        cardsPlayed += plays;
+        if ((plays & 1) != 0) {
+            player1ToMove = !player1ToMove;
+            int index = moverIndex;
+            moverIndex = otherIndex;
+            otherIndex = index;
+        }
+        hands[moverIndex] = mover;
+        hands[otherIndex] = other;
+        masks[moverIndex] = moverMask;
+        masks[otherIndex] = otherMask;
+        nextToDraw[lane] = next;
+        cardsGone[lane] = gone;
+        int score = player1ToMove ? ++wins2[lane] : ++wins1[lane];
+        turns[lane] = player1ToMove ? 2 : 1;
+        if (score == roundsToWin) {
+            return true;
+        }
+        // The winner starts the next round on a card drawn from the deck
+        tops[lane] = drawCode(lane);
+        return false;
+    }
+
+    /**
+     * Finds the slots of a packed hand holding a card, all at once: the lowest byte of every
+     * slot with that card gets its top bit set. Bytes above the first match can be flagged by
+     * mistake, so only the lowest flagged byte can be trusted.
+     * @param hand packed hand, one card code per byte and emptySlots above the hand.
+     * @param code card code to look for.
+     * @return flags, 0 if the hand doesn't hold the card.
+     */
+    private static long matchingSlots(long hand, int code) {
+        long difference = hand ^ code * LOW_BYTES;
+        return (difference - LOW_BYTES) & ~difference & HIGH_BITS;
+    }
+
+    /**
+     * Finds the first card of a packed hand, in hand order, that is playable. All eight bytes are
+     * looked at, whatever the hand size, so the loop has a fixed length; empty slots never match.
+     * @param hand packed hand, one card code per byte and emptySlots above the hand.
+     * @param playable mask of the playable card codes, not 0.
+     * @return code of the first playable card.
+     */
+    private static int firstPlayable(long hand, long playable) {
+        int found = 0;
+        for (int i = MAX_HAND_SIZE - 1; i >= 0; i--) {
+            found = found << 1 | (int) (playable >>> (hand >>> 8 * i) & 1);
+        }
+        return (int) (hand >>> 8 * Integer.numberOfTrailingZeros(found) & 0xff);
+    }
+
+    /**
+     * Deals a game into a lane exactly like UnoWarMatch.playGame does, and draws the first card of
+     * round 1, which player 1 starts.
+     * @param lane the lane.
+     * @param gameIndex number of the game within the match.
+     */
+    private void deal(int lane, long gameIndex) {
+        int base = lane * deckSize;
+        rules.copyDeck(decks, base);
+        randomStates[lane] = shuffle(base, SplitMixRandom.seedFor(seed, gameIndex));
+        nextToDraw[lane] = 0;
+        cardsGone[lane] = 0;
+        for (int player = 0; player < 2; player++) {
+            long hand = emptySlots;
+            long mask = 0;
+            for (int i = 0; i < handSize; i++) {
+                int code = drawCode(lane);
+                hand |= (long) code << 8 * i;
+                mask |= 1L << code;
+            }
+            hands[lane * 2 + player] = hand;
+            masks[lane * 2 + player] = mask;
+        }
+        wins1[lane] = 0;
+        wins2[lane] = 0;
+        turns[lane] = 1;
+        tops[lane] = drawCode(lane);
+    }
+
+    /**
+     * Draws the next card of a lane's deck, exactly like Deck.drawCode.
+     * @param lane the lane.
+     * @return code of the card drawn.
+     */
+    private int drawCode(int lane) {
+        if (cardsGone[lane] == deckSize) {
+            reshuffles++;
+            randomStates[lane] = shuffle(lane * deckSize, randomStates[lane]);
+            nextToDraw[lane] = 0;
+            cardsGone[lane] = 1;
+        } else {
+            int next = nextToDraw[lane] + 1;
+            nextToDraw[lane] = next == deckSize ? 0 : next;
+            cardsGone[lane]++;
+        }
+        return decks[lane * deckSize + nextToDraw[lane]];
+    }
+
+    /**
+     * Shuffles a lane's deck exactly like Deck.shuffle, with the lane's generator.
+     * @param deckBase index of the lane's first card in decks.
+     * @param randomState state of the lane's generator.
+     * @return state of the lane's generator after the shuffle.
+     */
+    private long shuffle(int deckBase, long randomState) {
+        random.setSeed(randomState);
+        for (int i = 0; i < deckSize; i++) {
+            int j = random.nextInt(deckSize - i) + i;
+            byte temp = decks[deckBase + i];
+            decks[deckBase + i] = decks[deckBase + j];
+            decks[deckBase + j] = temp;
+        }
+        return random.getState();
+    }
+
+    /**
+     * Copies the whole game of one lane into another.
+     * @param from lane to copy.
+     * @param to lane to overwrite.
+     */
+    private void moveLane(int from, int to) {
+        if (from == to) {
+            return;
+        }
+        System.arraycopy(decks, from * deckSize, decks, to * deckSize, deckSize);
+        hands[to * 2] = hands[from * 2];
+        hands[to * 2 + 1] = hands[from * 2 + 1];
+        masks[to * 2] = masks[from * 2];
+        masks[to * 2 + 1] = masks[from * 2 + 1];
+        nextToDraw[to] = nextToDraw[from];
+        cardsGone[to] = cardsGone[from];
+        randomStates[to] = randomStates[from];
+        tops[to] = tops[from];
+        turns[to] = turns[from];
+        wins1[to] = wins1[from];
+        wins2[to] = wins2[from];
+    }
+}
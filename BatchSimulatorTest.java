@@ -0,0 +1,61 @@
+package student;
+
+/**
+ * Checks that BatchSimulator wins exactly the games UnoWarMatch wins, for every pairing of the
+ * built-in AIs and for variants of the rules.
+ */
+public class BatchSimulatorTest {
+    public static void main(String[] args) {
+        RuleSet[] variants = {
+            RuleSet.STANDARD,
+            new RuleSet(8, 5, 2, 1, 13, PlayRule.STANDARD),
+            new RuleSet(3, 3, 1, 7, 13, PlayRule.STANDARD),
+            new RuleSet(7, 10, 3, 2, 9, (top, card) -> card.getRankNum() > top.getRankNum()
+                    || card.getSuitNum() == top.getSuitNum()),
+        };
+        AI[] ais = {new AI(), new SmallestCardAI(), new BiggestCardAI()};
+        int games = 1000;
+
+        // Every game must have the same winner, whether the games are played alone or in lanes
+        // loop should print nothing!
+        for (RuleSet rules : variants) {
+            for (AI ai1 : ais) {
+                for (AI ai2 : ais) {
+                    UnoWarMatch match = new UnoWarMatch(ai1.copy(), ai2.copy(), 11, rules);
+                    BatchSimulator single = new BatchSimulator(ai1, ai2, 11, 1, rules);
+                    long won = 0;
+                    for (int i = 0; i < games; i++) {
+                        boolean matchWon = match.playGame(i);
+                        if (matchWon) {
+                            won++;
+                        }
+                        if ((single.wins(i, 1) == 1) != matchWon) {
+                            System.out.println(rules + ", " + ai1 + " vs. " + ai2 + ": game " + i + " has another winner");
+                        }
+                    }
+                    long batched = new BatchSimulator(ai1, ai2, 11, 64, rules).wins(0, games);
+                    if (batched != won) {
+                        System.out.println(rules + ", " + ai1 + " vs. " + ai2 + ": " + batched + " wins batched, "
+                                + won + " played");
+                    }
+                }
+            }
+        }
+
+        System.out.println(BatchSimulator.supports(new AI()));                        // should print true
+        System.out.println(BatchSimulator.supports(new OracleAI()));                  // should print false
+        System.out.println(BatchSimulator.supports(new RuleSet(9, 10, 2, 1, 13, PlayRule.STANDARD))); // should print false
+        try {
+            new BatchSimulator(new AI(), new AI(), 11, 0);                             // should print lanes must be at least 1: 0
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
+// Expected prints:
+/*
+true
+false
+false
+lanes must be at least 1: 0
+ */
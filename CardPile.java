@@ -1,79 +1,141 @@
-package student;
-
-/**
- * The CardPile class represents a pile of cards in a card game.
- * It tracks the top card in the pile and provides methods to interact with it.
- * Methods allow checking if a card can be played, playing a card by replacing the top card,
- * getting the number of cards in the pile, and retrieving the current top card.
- * The pile only keeps track of the top card and the number of cards played so far.
- */
-public class CardPile {
-
-    /**
-     * Top card of the card pile.
-     */
-    private Card topCard;
-
-    /**
-     * Track the size of the card pile.
-     */
-    private int size;
-
-    /**
-     * Constructor to initialize the card pile with given top card.
-     * @param topCard card chosen to be the top card.
-     */
-    public CardPile(Card topCard) {
-        this.topCard = topCard;
-        this.size = 1;
-    }
-
-    /**
-     * Determines if card could be played based on the top card.
-     * @param card being determined if able to play.
-     * @return true if card can be played, false if unable
-     */
-    public boolean canPlay(Card card) {
-        // If the card is null, it can't be played
-        if (card == null) {
-            return false;
-        }
-        // Check if the card's rank is greater than or equal to the top card's rank,
-        // or if the card has the same suit as the top card
-        boolean isRankValid = card.getRankNum() >= topCard.getRankNum();
-        boolean isSuitValid = card.getSuitName().equals(topCard.getSuitName());
-
-        return !(isRankValid == false && isSuitValid == false);
-    }
-
-    /**
-     * Plays card by placing it on top of pile.
-     * If not legal to play, it prints an error statement.
-     * @param card to be played.
-     */
-    public void play(Card card) {
-        if (canPlay(card)) {
-            size += 1;
-            topCard = card;
-        } else {
-            System.out.println("Illegal move detected!");
-        }
-    }
-
-    /**
-     * Gets number of cards in card pile.
-     * @return number of cards in the pile.
-     */
-    public int getNumCards() {
-        return size;
-    }
-
-    /**
-     * Gets top card of card pile.
-     * @return top card.
-     */
-    public Card getTopCard() {
-        return topCard;
-    }
-}
-
+package student;
+
+/**
+ * The CardPile class represents a pile of cards in a card game.
+ * It tracks the top card in the pile and provides methods to interact with it.
+ * Methods allow checking if a card can be played, playing a card by replacing the top card,
+ * getting the number of cards in the pile, and retrieving the current top card.
+ * The pile only keeps track of the top card and the number of cards played so far.
+ * Which cards may be played comes from a PlayTable, and the pile keeps the table's mask of cards
+ * playable on the current top card, so checking a card is a single bit test.
+ * A pile can be reset with a new top card, so a match can keep one pile for all its rounds.
+ */
+public class CardPile {
+
+    /**
+     * Code of the top card of the card pile.
+     */
+    private int topCode;
+
+    /**
+     * Track the size of the card pile.
+     */
+    private int size;
+
+    /**
+     * Table of which cards can be played on which top card.
+     */
+    private final PlayTable table;
+
+    /**
+     * Mask of the codes of the cards that can be played on the top card.
+     */
+    private long playable;
+
+    /**
+     * Constructor to initialize the card pile with given top card, using the standard rules.
+     * @param topCard card chosen to be the top card.
+     */
+    public CardPile(Card topCard) {
+        this(topCard, PlayTable.STANDARD);
+    }
+
+    /**
+     * Constructor to initialize the card pile with given top card and rules.
+     * @param topCard card chosen to be the top card.
+     * @param table table of which cards can be played on which top card.
+     */
+    public CardPile(Card topCard, PlayTable table) {
+        this.table = table;
+        reset(topCard);
+    }
+
+    /**
+     * Starts the pile over with a new top card and the same rules, like a new pile would.
+     * @param topCard card chosen to be the top card.
+     */
+    public void reset(Card topCard) {
+        topCode = topCard.getCode();
+        playable = table.playableOn(topCode);
+        size = 1;
+    }
+
+    /**
+     * Determines if card could be played based on the top card.
+     * @param card being determined if able to play.
+     * @return true if card can be played, false if unable
+     */
+    public boolean canPlay(Card card) {
+        // If the card is null, it can't be played
+        if (card == null) {
+            return false;
+        }
+        return canPlayCode(card.getCode());
+    }
+
+    /**
+     * Determines if the card with the given code could be played based on the top card.
+     * @param code of the card being determined if able to play.
+     * @return true if card can be played, false if unable
+     */
+    boolean canPlayCode(int code) {
+        // The card can be played if its bit is set in the mask for the top card
+        return (playable >>> code & 1) != 0;
+    }
+
+    /**
+     * Plays card by placing it on top of pile.
+     * If not legal to play, it prints an error statement.
+     * @param card to be played.
+     */
+    public void play(Card card) {
+        if (canPlay(card)) {
+            size += 1;
+            topCode = card.getCode();
+            playable = table.playableOn(topCode);
+        } else {
+            System.out.println("Illegal move detected!");
+        }
+    }
+
+    /**
+     * Gets a mask of the codes of the cards that can be played on the top card.
+     * @return mask with the bit of every playable card code set.
+     */
+    public long getPlayableMask() {
+        return playable;
+    }
+
+    /**
+     * Gets the table of which cards can be played on which top card.
+     * @return the pile's play table.
+     */
+    PlayTable getTable() {
+        return table;
+    }
+
+    /**
+     * Gets number of cards in card pile.
+     * @return number of cards in the pile.
+     */
+    public int getNumCards() {
+        return size;
+    }
+
+    /**
+     * Gets top card of card pile.
+     * @return top card.
+     */
+    public Card getTopCard() {
+        return Card.fromCode(topCode);
+    }
+
+    /**
+     * Gets code of the top card of card pile.
+     * @return code of the top card.
+     */
+    int getTopCode() {
+        return topCode;
+    }
+}
+
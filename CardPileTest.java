@@ -38,6 +38,12 @@ public class CardPileTest {
         pile.play(null);                        // should print "Illegal move detected!"
         System.out.println(pile.getNumCards()); // should print 3
         System.out.println(pile.getTopCard());  // should print "Two of Hearts";
+
+        // a pile can use other rules, here only cards of the same suit can be played
+        PlayTable sameSuit = new PlayTable((top, card) -> top.getSuitNum() == card.getSuitNum());
+        CardPile suitPile = new CardPile(c1, sameSuit);
+        System.out.println(suitPile.canPlay(c2));   // should print true
+        System.out.println(suitPile.canPlay(c4));   // should print false
     }
 }
 // Expected output
@@ -62,4 +68,6 @@ Two of Hearts
 Illegal move detected!
 3
 Two of Hearts
+true
+false
  */
\ No newline at end of file
@@ -36,6 +36,14 @@ public class CardTest {
         err = new Card(33, 2);                    // should print "Invalid Card"
         System.out.println(err);                  // should print "Ace of Spades"
 
+        // card codes and the shared card table
+        System.out.println(as.getCode());         // should print 0
+        System.out.println(jc.getCode());         // should print 42
+        System.out.println(Card.fromCode(42));    // should print "Jack of Clubs"
+        System.out.println(Card.of(11, 3) == Card.of(11, 3)); // should print "true"
+        System.out.println(Card.of(11, 3).equals(jc));        // should print "true"
+        System.out.println(Card.of(14, 1));       // should print "Invalid Card" then "Ace of Spades"
+
         // You may find it useful to make other Card methods. Please do.
         // If you do make other methods I recommend designing some tests and putting them in this file
         // This will help you avoid bugs, or at the least catch bugs before they become an issue.
@@ -62,4 +70,11 @@ Invalid Card
 ce of Spades
 Invalid Card
 ce of Spades
+0
+42
+Jack of Clubs
+true
+true
+Invalid Card
+Ace of Spades
  */
@@ -0,0 +1,150 @@
+package student;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks that a tournament stopped in the middle and resumed from its checkpoint gives the same
+ * results as a tournament that was never stopped.
+ */
+public class CheckpointTest {
+
+    /**
+     * Plays like AI, but can be made to fail after a number of moves, like a crash would.
+     */
+    private static class FailingAI extends AI {
+
+        /**
+         * Moves left before the AI fails, or a negative number to never fail.
+         */
+        private static int movesLeft = -1;
+
+        /**
+         * Number of moves made since the counter was last reset.
+         */
+        private static int moves;
+
+        /**
+         * Plays the first playable card, or fails once no moves are left.
+         * @param hand the hand to play from.
+         * @param cardPile the pile the card is played on.
+         * @return the card played.
+         */
+        @Override
+        public Card getPlay(Hand hand, CardPile cardPile) {
+            synchronized (FailingAI.class) {
+                moves++;
+                if (movesLeft == 0) {
+                    throw new IllegalStateException("Crashed");
+                }
+                if (movesLeft > 0) {
+                    movesLeft--;
+                }
+            }
+            return super.getPlay(hand, cardPile);
+        }
+
+        /**
+         * Name of AI.
+         * @return "Failing AI".
+         */
+        @Override
+        public String toString() {
+            return "Failing AI";
+        }
+    }
+
+    /**
+     * Creates a tournament of the failing AI and the two card-size AIs on two threads.
+     * @param file checkpoint file, or null for none.
+     * @return the tournament.
+     */
+    private static TournamentScheduler tournament(Path file) {
+        List<AI> ais = List.of(new FailingAI(), new SmallestCardAI(), new BiggestCardAI());
+        TournamentScheduler scheduler = new TournamentScheduler(ais, 7, 50, new ForkJoinPool(2));
+        scheduler.setCheckpoint(file, 0);
+        return scheduler;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path file = Files.createTempFile("checkpoint", ".txt");
+
+        // A run stopped by a crash and resumed gives the results of a run that was never stopped
+        String uninterrupted = Arrays.deepToString(tournament(null).run(1500));
+        int allMoves = FailingAI.moves;
+        Files.delete(file);
+        FailingAI.movesLeft = allMoves / 2;
+        try {
+            tournament(file).run(1500);
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage());                         // should print java.lang.IllegalStateException: Crashed
+        }
+        FailingAI.movesLeft = -1;
+        FailingAI.moves = 0;
+        String resumed = Arrays.deepToString(tournament(file).run(1500));
+        System.out.println(resumed.equals(uninterrupted));              // should print true
+        System.out.println(FailingAI.moves < allMoves);                 // should print true
+
+        // The same for estimate, which stops each matchup at its own time
+        Files.delete(file);
+        String estimated = Arrays.deepToString(tournament(null).estimate(0.05, 3000));
+        FailingAI.moves = 0;
+        FailingAI.movesLeft = 30000;
+        try {
+            tournament(file).estimate(0.05, 3000);
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage());                         // should print java.lang.IllegalStateException: Crashed
+        }
+        FailingAI.movesLeft = -1;
+        System.out.println(Arrays.deepToString(tournament(file).estimate(0.05, 3000)).equals(estimated)); // should print true
+
+        // A checkpoint of AIs with other settings isn't resumed
+        Files.delete(file);
+        TournamentScheduler oracles = new TournamentScheduler(List.of(new OracleAI(2, 0), new SmallestCardAI()), 7, 10);
+        oracles.setCheckpoint(file, 0);
+        oracles.run(10);
+        oracles = new TournamentScheduler(List.of(new OracleAI(3, 0), new SmallestCardAI()), 7, 10);
+        oracles.setCheckpoint(file, 0);
+        try {
+            oracles.run(10);                                            // should print Checkpoint ... belongs to another tournament
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage());
+        }
+        Files.delete(file);
+
+        // Nor is a checkpoint of rules that only differ in which cards can be played
+        TournamentScheduler suits = new TournamentScheduler(List.of(new AI(), new SmallestCardAI()), 7, 10);
+        suits.setRules(new RuleSet(5, 10, 1, 1, 13, (top, card) -> card.getSuitNum() == top.getSuitNum()));
+        suits.setCheckpoint(file, 0);
+        suits.run(10);
+        TournamentScheduler ranks = new TournamentScheduler(List.of(new AI(), new SmallestCardAI()), 7, 10);
+        ranks.setRules(new RuleSet(5, 10, 1, 1, 13, (top, card) -> card.getRankNum() == top.getRankNum()));
+        ranks.setCheckpoint(file, 0);
+        try {
+            ranks.run(10);                                              // should print Checkpoint ... belongs to another tournament
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage());
+        }
+        Files.delete(file);
+
+        System.out.println(new OracleAI());                             // should print Oracle AI (depth 8)
+        System.out.println(new OracleAI(4, 50000));                     // should print Oracle AI (depth 4, budget 50000 ns)
+        System.out.println(new MonteCarloAI());                         // should print Monte Carlo AI (samples 200, margin 0.15, threads 1, seed 0)
+    }
+}
+// Expected prints:
+/*
+java.lang.IllegalStateException: Crashed
+true
+true
+java.lang.IllegalStateException: Crashed
+true
+Checkpoint <checkpoint file> belongs to another tournament
+Checkpoint <checkpoint file> belongs to another tournament
+Oracle AI (depth 8)
+Oracle AI (depth 4, budget 50000 ns)
+Monte Carlo AI (samples 200, margin 0.15, threads 1, seed 0)
+ */
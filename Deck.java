@@ -1,98 +1,251 @@
-package student;
-import java.util.Random;
-
-/**
- * The Deck class shows a standard deck of 52 playing cards.
- * It shuffles the deck, draw cards from it, and track the number of remaining cards.
- * If the deck is empty, it will reshuffle and continue drawing cards.
- */
-public class Deck {
-
-    /**
-     * Array holding all 52 Card objects in the deck.
-     */
-    private final Card[] deck;
-
-    /**
-     * Index of the next card that will be drawn from the deck.
-     */
-    private int nextToDraw;
-
-    /**
-     * Tracks the number of cards drawn from the deck.
-     */
-    private int cardsGone;
-
-    /**
-     * Constructs a deck of 52 cards, initializes their values, and shuffles the deck.
-     */
-    public Deck() {
-        this.deck = new Card[52];
-        this.nextToDraw = 0;
-        this.cardsGone = 0;
-
-        int index = 0;
-        for (int suit = 1; suit <= 4; suit++) {
-            for (int rank = 1; rank <= 13; rank++) {
-                // Increment index
-                this.deck[index++] = new Card(rank, suit);
-            }
-        }
-
-        shuffle();
-    }
-
-    /**
-     * Shuffles the deck of cards randomly, ensuring an even distribution.
-     * Resets the `cardsGone` counter to zero to indicate all cards are available.
-     */
-    public void shuffle() {
-        Random random = new Random();
-
-        // Loop over the deck from the last card to the second card
-        for (int i = 0; i < deck.length; i++) {
-            // Generate a random index j between i and the last index of the deck
-            int j = random.nextInt(deck.length - i) + i;
-
-            // Swap the cards at index i and j
-            Card temp = deck[i];
-            deck[i] = deck[j];
-            deck[j] = temp;
-        }
-    }
-
-    /**
-     * Draws a card from the deck. If the deck is empty, the deck is reshuffled, and the first card is returned.
-     * After each draw, the `nextToDraw` index is updated to point to the following card,
-     * wrapping around to the start of the deck if the end is reached.
-     * @return the next Card in the deck
-     */
-    public Card draw() {
-        if (isEmpty()) {
-            shuffle();
-            nextToDraw = 0;
-            cardsGone = 1;
-        } else {
-            // Increment and wrap around to 0 if at the end
-            nextToDraw = (nextToDraw + 1) % 52;
-            cardsGone++;
-        }
-        return deck[nextToDraw];
-    }
-
-    /**
-     * Determines the number of cards remaining in the deck.
-     * @return number of cards left in the deck.
-     */
-    public int cardsRemaining() {
-        return deck.length - cardsGone;
-    }
-
-    /**
-     * Determines if deck is empty.
-     * @return if there are no more cards in the deck.
-     */
-    public boolean isEmpty() {
-        return cardsGone == 52;
-    }
-}
+package student;
+import java.util.random.RandomGenerator;
+
+/**
+ * The Deck class shows a standard deck of 52 playing cards, or the deck of a RuleSet.
+ * It shuffles the deck, draw cards from it, and track the number of remaining cards.
+ * If the deck is empty, it will reshuffle and continue drawing cards.
+ * A shuffle doesn't move any card when it happens: each position of the deck gets its card when it
+ * is about to be drawn (a few positions at a time), so the cards of a shuffle that are never drawn
+ * are never shuffled either. The cards come out exactly as if the whole deck had been shuffled at once.
+ * A deck can be reset and dealt again instead of making a new one for every game.
+ */
+public class Deck {
+
+    /**
+     * Number of positions settled at once when a draw reaches a position without its card yet.
+     * One step per draw costs more than steps done in a row, so a few are done ahead.
+     */
+    private static final int SETTLE_BLOCK = 16;
+
+    /**
+     * Array holding the codes of all cards in the deck, in dealing order.
+     */
+    private final byte[] deck;
+
+    /**
+     * Index of the next card that will be drawn from the deck.
+     */
+    private int nextToDraw;
+
+    /**
+     * Tracks the number of cards drawn from the deck.
+     */
+    private int cardsGone;
+
+    /**
+     * Number of times the deck has been shuffled, including the shuffle when it was made.
+     */
+    private int shuffles;
+
+    /**
+     * Number of positions, from the start of the deck, that already got their card in the current shuffle.
+     */
+    private int shuffled;
+
+    /**
+     * Random number generator the shuffles draw from, while the cards are dealt.
+     */
+    private final RandomGenerator random;
+
+    /**
+     * Rules that decide which cards are in the deck.
+     */
+    private final RuleSet rules;
+
+    /**
+     * Constructs a deck of 52 cards, initializes their values, and shuffles the deck.
+     */
+    public Deck() {
+        this(new SplitMixRandom());
+    }
+
+    /**
+     * Constructs a deck of 52 cards that shuffles with the given random number generator.
+     * Two decks built with generators seeded the same way deal the same cards.
+     * The deck keeps using the generator for every reshuffle, so no generator is created per shuffle.
+     * Shuffles draw from it while the cards are dealt, so it shouldn't be shared with anything else.
+     * @param random generator used for every shuffle of this deck
+     */
+    public Deck(RandomGenerator random) {
+        this(random, RuleSet.STANDARD);
+    }
+
+    /**
+     * Constructs the deck of a rule set, which may hold fewer ranks or several copies of every
+     * card, and shuffles it with the given random number generator.
+     * @param random generator used for every shuffle of this deck
+     * @param rules rules that decide which cards are in the deck
+     */
+    public Deck(RandomGenerator random, RuleSet rules) {
+        this.random = random;
+        this.rules = rules;
+        this.deck = new byte[rules.getDeckSize()];
+        reset();
+    }
+
+    /**
+     * Puts every card back in the deck and shuffles it again, as if the deck was just made.
+     * After the generator is seeded again, the deck deals exactly like a new deck made with that
+     * generator, without creating anything.
+     */
+    public void reset() {
+        rules.copyDeck(deck, 0);
+        nextToDraw = 0;
+        cardsGone = 0;
+        shuffles = 1;
+        // The old order is thrown away, so the rest of its shuffle never has to be done
+        shuffled = 0;
+    }
+
+    /**
+     * Shuffles the deck of cards randomly, ensuring an even distribution.
+     * The cards only get their new positions as they are drawn or looked at.
+     */
+    public void shuffle() {
+        // The new shuffle starts from the order the last one ends with
+        settle(deck.length - 1);
+        shuffles++;
+        shuffled = 0;
+    }
+
+    /**
+     * Does the steps of the current shuffle up to a position, so that every position up to it
+     * has its final card. This is a Fisher-Yates shuffle done one step at a time: step i picks
+     * the card of position i among the positions from i on, so doing the steps in order when the
+     * cards are needed gives the same deck as doing all of them at once.
+     * @param index last position that needs its card.
+     */
+    private void settle(int index) {
+        while (shuffled <= index) {
+            // Generate a random index j between this position and the last index of the deck
+            int j = random.nextInt(deck.length - shuffled) + shuffled;
+
+            // Swap the cards at this position and j
+            byte temp = deck[shuffled];
+            deck[shuffled] = deck[j];
+            deck[j] = temp;
+            shuffled++;
+        }
+    }
+
+    /**
+     * Draws a card from the deck. If the deck is empty, the deck is reshuffled, and the first card is returned.
+     * After each draw, the `nextToDraw` index is updated to point to the following card,
+     * wrapping around to the start of the deck if the end is reached.
+     * @return the next Card in the deck
+     */
+    public Card draw() {
+        return Card.fromCode(drawCode());
+    }
+
+    /**
+     * Draws a card from the deck like {@link #draw()}, but returns its card code.
+     * @return the code of the next card in the deck
+     */
+    int drawCode() {
+        if (isEmpty()) {
+            shuffle();
+            nextToDraw = 0;
+            cardsGone = 1;
+        } else {
+            // Increment and wrap around to 0 if at the end
+            nextToDraw = nextToDraw == deck.length - 1 ? 0 : nextToDraw + 1;
+            cardsGone++;
+        }
+        if (nextToDraw >= shuffled) {
+            settle(Math.min(nextToDraw + SETTLE_BLOCK - 1, deck.length - 1));
+        }
+        return deck[nextToDraw];
+    }
+
+    /**
+     * Looks at a card that will be drawn later without drawing it.
+     * Cards after the next reshuffle aren't known yet, so they can't be looked at.
+     * @param ahead how many draws from now, 0 being the next draw.
+     * @return the code of that card, or -1 if the deck will be reshuffled before it is drawn.
+     */
+    int peekCode(int ahead) {
+        if (ahead < 0 || cardsGone + ahead >= deck.length) {
+            return -1;
+        }
+        int index = (nextToDraw + 1 + ahead) % deck.length;
+        settle(index);
+        return deck[index];
+    }
+
+    /**
+     * Copies the codes of the cards of the deck, in dealing order, into an array. The current
+     * shuffle is finished first, so afterwards the generator is where a whole shuffle leaves it.
+     * @param into array of at least getSize() entries.
+     */
+    void copyOrder(byte[] into) {
+        settle(deck.length - 1);
+        System.arraycopy(deck, 0, into, 0, deck.length);
+    }
+
+    /**
+     * Gets the number of cards in the deck.
+     * @return size of the deck.
+     */
+    public int getSize() {
+        return deck.length;
+    }
+
+    /**
+     * Gets the rules that decide which cards are in the deck.
+     * @return rules of the deck.
+     */
+    RuleSet getRules() {
+        return rules;
+    }
+
+    /**
+     * Gets the index of the card drawn last, which is the card the next draw moves on from.
+     * @return index of the card drawn last.
+     */
+    int getNextToDraw() {
+        return nextToDraw;
+    }
+
+    /**
+     * Gets the number of cards drawn since the last shuffle.
+     * @return number of cards drawn.
+     */
+    int getCardsGone() {
+        return cardsGone;
+    }
+
+    /**
+     * Gets the random number generator the deck shuffles with. Its state is only the state after
+     * the current shuffle once copyOrder finished that shuffle.
+     * @return generator of the deck.
+     */
+    RandomGenerator getRandom() {
+        return random;
+    }
+
+    /**
+     * Gets the number of times the deck has been shuffled, including the shuffle when it was made.
+     * @return number of shuffles.
+     */
+    public int getShuffles() {
+        return shuffles;
+    }
+
+    /**
+     * Determines the number of cards remaining in the deck.
+     * @return number of cards left in the deck.
+     */
+    public int cardsRemaining() {
+        return deck.length - cardsGone;
+    }
+
+    /**
+     * Determines if deck is empty.
+     * @return if there are no more cards in the deck.
+     */
+    public boolean isEmpty() {
+        return cardsGone == deck.length;
+    }
+}
@@ -0,0 +1,377 @@
+package student;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a round-robin tournament like TournamentScheduler.run, but spreads the games over worker
+ * processes (see TournamentWorker) instead of the threads of one JVM. The coordinator cuts every
+ * matchup into units of chunkSize game numbers and hands them out over each worker's standard
+ * input and output, one unit at a time, so faster workers simply take more units. A worker that
+ * dies gives its unit back to the queue and is started again, so no unit is lost.
+ * Every game is dealt from the tournament seed, the identities of its two AIs and its game number,
+ * exactly like TournamentScheduler does, so the results are the same as a single-JVM run of the
+ * same AIs and seed, whichever worker played which unit.
+ * AIs are named by class and created in each worker with their constructor without parameters.
+ */
+public class DistributedTournament {
+
+    /**
+     * Times a worker slot starts a new worker after its worker died, before it gives up.
+     */
+    public static final int MAX_RESTARTS = 3;
+
+    /**
+     * Milliseconds a worker slot waits for a unit before it checks whether the tournament is over.
+     */
+    private static final long POLL_MILLIS = 100;
+
+    /**
+     * Class names of the AIs taking part in the tournament.
+     */
+    private final List<String> aiClasses;
+
+    /**
+     * An AI of every class, created like the workers create them, which the matchup seeds are
+     * derived from.
+     */
+    private final List<AI> ais = new ArrayList<>();
+
+    /**
+     * Seed of the tournament, from which every matchup's seed is derived.
+     */
+    private final long seed;
+
+    /**
+     * Largest number of games in one unit.
+     */
+    private final int chunkSize;
+
+    /**
+     * Number of worker processes.
+     */
+    private final int workers;
+
+    /**
+     * Units not handed out yet, including units given back by workers that died.
+     */
+    private final LinkedBlockingDeque<Unit> queue = new LinkedBlockingDeque<>();
+
+    /**
+     * Number of units without a result yet.
+     */
+    private final AtomicInteger remaining = new AtomicInteger();
+
+    /**
+     * Number of units given back by a worker that died.
+     */
+    private final AtomicInteger reassigned = new AtomicInteger();
+
+    /**
+     * Results of the current run: wins[i][j], summed over the units that are done.
+     */
+    private long[][] wins;
+
+    /**
+     * First error that stops the run, or null.
+     */
+    private IOException failure;
+
+    /**
+     * Creates a distributed tournament.
+     * @param aiClasses fully qualified class names of the AIs, such as "student.SmallestCardAI".
+     * @param seed seed of the tournament.
+     * @param chunkSize largest number of games in one unit, at least 1.
+     * @param workers number of worker processes, at least 1.
+     * @throws IllegalArgumentException if an AI class can't be created.
+     */
+    public DistributedTournament(List<String> aiClasses, long seed, int chunkSize, int workers) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1: " + chunkSize);
+        }
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be at least 1: " + workers);
+        }
+        // Fail here rather than in every worker
+        for (String aiClass : aiClasses) {
+            try {
+                ais.add(TournamentWorker.createAI(aiClass));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Can't create AI " + aiClass, e);
+            }
+        }
+        this.aiClasses = new ArrayList<>(aiClasses);
+        this.seed = seed;
+        this.chunkSize = chunkSize;
+        this.workers = workers;
+    }
+
+    /**
+     * Plays nTrials games for every ordered pair of AIs on the worker processes.
+     * Only one run of a tournament can go on at a time.
+     * @param nTrials number of games per matchup.
+     * @return wins[i][j], the number of games AI i won in seat 1 against AI j in seat 2.
+     * @throws IOException if a worker reports an error, or every worker died too often.
+     * @throws InterruptedException if the thread is interrupted while waiting for the workers.
+     */
+    public long[][] run(long nTrials) throws IOException, InterruptedException {
+        int n = aiClasses.size();
+        wins = new long[n][n];
+        failure = null;
+        queue.clear();
+        reassigned.set(0);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                long matchupSeed = TournamentScheduler.matchupSeed(seed, ais.get(i), ais.get(j));
+                for (long first = 0; first < nTrials; first += chunkSize) {
+                    queue.add(new Unit(queue.size(), i, j, matchupSeed, first, Math.min(chunkSize, nTrials - first)));
+                }
+            }
+        }
+        remaining.set(queue.size());
+
+        List<Thread> slots = new ArrayList<>();
+        for (int slot = 0; slot < workers; slot++) {
+            Thread thread = new Thread(this::serve, "tournament-worker-" + slot);
+            thread.setDaemon(true);
+            slots.add(thread);
+            thread.start();
+        }
+        try {
+            for (Thread thread : slots) {
+                thread.join();
+            }
+        } finally {
+            // Stop the other slots if this thread was interrupted
+            remaining.set(0);
+        }
+        synchronized (this) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+        if (!queue.isEmpty()) {
+            throw new IOException("Every worker died too often, " + queue.size() + " units were not played");
+        }
+        return wins;
+    }
+
+    /**
+     * Gets the number of units of the last run that were given back by a worker that died and
+     * played again by another one.
+     * @return number of reassigned units.
+     */
+    public int getReassignedUnits() {
+        return reassigned.get();
+    }
+
+    /**
+     * Runs one worker slot: starts a worker process and feeds it units until none are left,
+     * starting a new worker whenever the current one dies, up to MAX_RESTARTS times.
+     */
+    private void serve() {
+        int restarts = 0;
+        while (remaining.get() > 0) {
+            Process process;
+            try {
+                process = startWorker();
+            } catch (IOException e) {
+                fail(e);
+                return;
+            }
+            boolean died = feed(process);
+            process.destroy();
+            if (died && ++restarts > MAX_RESTARTS) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Feeds units to one worker process until none are left or the worker dies.
+     * @param process the worker.
+     * @return true if the worker died.
+     */
+    private boolean feed(Process process) {
+        try (BufferedWriter to = new BufferedWriter(
+                     new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+             BufferedReader from = new BufferedReader(
+                     new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            while (remaining.get() > 0) {
+                Unit unit = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (unit == null) {
+                    continue;
+                }
+                String reply;
+                try {
+                    to.write(command(unit));
+                    to.newLine();
+                    to.flush();
+                    reply = from.readLine();
+                } catch (IOException e) {
+                    reply = null;
+                }
+                if (reply == null) {
+                    // The worker died with this unit, so someone else plays it
+                    queue.addFirst(unit);
+                    reassigned.incrementAndGet();
+                    return true;
+                }
+                finish(unit, reply);
+            }
+        } catch (IOException e) {
+            // Closing the pipes of a worker that died can fail too; the worker is gone either way
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /**
+     * Adds the result of a unit, or stops the run if the worker couldn't play it.
+     * @param unit the unit.
+     * @param reply the worker's answer.
+     */
+    private synchronized void finish(Unit unit, String reply) {
+        String[] fields = reply.split(" ", 3);
+        if (fields.length == 3 && fields[0].equals("WON") && fields[1].equals(String.valueOf(unit.id))) {
+            wins[unit.first][unit.second] += Long.parseLong(fields[2]);
+            remaining.decrementAndGet();
+        } else {
+            // A unit the worker can't play would fail on every worker, so it isn't handed out again
+            fail(new IOException("Worker couldn't play unit " + unit.id + ": " + reply));
+        }
+    }
+
+    /**
+     * Stops the run with an error, keeping the first one.
+     * @param e the error.
+     */
+    private synchronized void fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+        remaining.set(0);
+    }
+
+    /**
+     * Starts a worker process with the same Java and class path as this one.
+     * @return the worker process.
+     * @throws IOException if the process can't be started.
+     */
+    private Process startWorker() throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), TournamentWorker.class.getName())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    /**
+     * Builds the command line that hands a unit to a worker.
+     * @param unit the unit.
+     * @return the PLAY command of the unit.
+     */
+    private String command(Unit unit) {
+        return "PLAY " + unit.id + " " + aiClasses.get(unit.first) + " " + aiClasses.get(unit.second) + " "
+                + unit.matchupSeed + " " + unit.firstGame + " " + unit.games;
+    }
+
+    /**
+     * Plays the tournament of the three basic AIs on worker processes and prints the win rate of
+     * every matchup, like Tournament does.
+     * @param args optional number of workers, then an optional seed, then an optional number of games per matchup.
+     * @throws IOException if the workers fail.
+     * @throws InterruptedException if the thread is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int workers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        long nTrials = args.length > 2 ? Long.parseLong(args[2]) : 3000;
+        System.out.printf("Seed: %d%n", seed);
+        List<String> aiClasses = List.of(AI.class.getName(), SmallestCardAI.class.getName(),
+                BiggestCardAI.class.getName());
+        DistributedTournament tournament = new DistributedTournament(aiClasses, seed, 100, workers);
+        long[][] wins = tournament.run(nTrials);
+
+        List<String> names = new ArrayList<>();
+        for (String aiClass : aiClasses) {
+            try {
+                names.add(TournamentWorker.createAI(aiClass).toString());
+            } catch (ReflectiveOperationException e) {
+                names.add(aiClass);
+            }
+        }
+        for (int i = 0; i < names.size(); i++) {
+            for (int j = 0; j < names.size(); j++) {
+                System.out.printf("%s vs. %s winRate: %.3f%n", names.get(i), names.get(j), wins[i][j] / (double) nTrials);
+            }
+        }
+        if (tournament.getReassignedUnits() > 0) {
+            System.out.printf("%d units were played again after a worker died%n", tournament.getReassignedUnits());
+        }
+    }
+
+    /**
+     * A range of game numbers of one matchup, handed to one worker at a time.
+     */
+    private static final class Unit {
+
+        /**
+         * Number of the unit, which the worker repeats in its answer.
+         */
+        private final int id;
+
+        /**
+         * Index of the AI in seat 1.
+         */
+        private final int first;
+
+        /**
+         * Index of the AI in seat 2.
+         */
+        private final int second;
+
+        /**
+         * Seed of the matchup.
+         */
+        private final long matchupSeed;
+
+        /**
+         * Number of the first game to play.
+         */
+        private final long firstGame;
+
+        /**
+         * Number of games to play.
+         */
+        private final long games;
+
+        /**
+         * Creates a unit.
+         * @param id number of the unit.
+         * @param first index of the AI in seat 1.
+         * @param second index of the AI in seat 2.
+         * @param matchupSeed seed of the matchup.
+         * @param firstGame number of the first game to play.
+         * @param games number of games to play.
+         */
+        Unit(int id, int first, int second, long matchupSeed, long firstGame, long games) {
+            this.id = id;
+            this.first = first;
+            this.second = second;
+            this.matchupSeed = matchupSeed;
+            this.firstGame = firstGame;
+            this.games = games;
+        }
+    }
+}
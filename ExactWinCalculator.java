@@ -0,0 +1,507 @@
+package student;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes the exact probability that player 1 wins an Uno War game, or its first round, between
+ * two strategies that only look at the cards in their hand and the top card (SmallestCardAI and
+ * BiggestCardAI), over every shuffle of the deck instead of a sample of them.
+ * With such strategies a game is a Markov chain: what happens next only depends on the hands,
+ * the top card, the cards not drawn since the last shuffle, the player to move and the score.
+ * The calculator lists every state reachable from every deal, each state once (hands are kept
+ * as sorted multisets, since these strategies don't care about the order of the hand), and
+ * solves for the probability of winning from each of them. Every draw takes one of the cards not
+ * drawn yet with the same probability, so a state's value is the average of the states after
+ * each possible draw. Only a reshuffle can bring a state back, so the values are found by sweeping
+ * over the states, deepest first, until no value changes by more than 1e-15.
+ * The state space grows very fast with the deck and hand sizes: the standard 52-card game is far
+ * out of reach, so only small variants of one deck are supported (see supports).
+ */
+public final class ExactWinCalculator {
+
+    /**
+     * Largest number of cards in the deck.
+     */
+    public static final int MAX_CARDS = 12;
+
+    /**
+     * Largest hand size times number of cards in the deck. Every card a hand holds multiplies
+     * the number of states by about the size of the deck.
+     */
+    public static final int MAX_HAND_CARDS = 16;
+
+    /**
+     * Largest number of rounds needed to win a game.
+     */
+    public static final int MAX_ROUNDS = 3;
+
+    /**
+     * Largest change of a value at which the sweeps stop.
+     */
+    private static final double PRECISION = 1e-15;
+
+    /**
+     * Largest number of sweeps before the calculator gives up.
+     */
+    private static final int MAX_SWEEPS = 1_000_000;
+
+    /**
+     * Whether player 1 plays its biggest playable card rather than its smallest.
+     */
+    private final boolean biggest1;
+
+    /**
+     * Whether player 2 plays its biggest playable card rather than its smallest.
+     */
+    private final boolean biggest2;
+
+    /**
+     * Rules of the games.
+     */
+    private final RuleSet rules;
+
+    /**
+     * Number of cards in the deck.
+     */
+    private final int cards;
+
+    /**
+     * Mask of the cards that can be played on every top card, both by index in the deck's sorted codes.
+     */
+    private final int[] playableOn;
+
+    /**
+     * Keys of the states found so far, by number. There can be millions of states, so they are
+     * kept in plain arrays rather than collections of boxed numbers.
+     */
+    private long[] keys;
+
+    /**
+     * Hash table of the states found so far: number + 1 of the state at the slot of its key, 0 if free.
+     */
+    private int[] table;
+
+    /**
+     * Position in successors of the first successor of every state; a state's successors end
+     * where the next state's begin, and a state without successors ends the game.
+     */
+    private int[] firstSuccessor;
+
+    /**
+     * Numbers of the successors of every state, one after another.
+     */
+    private int[] successors;
+
+    /**
+     * Number of entries of successors in use.
+     */
+    private int successorCount;
+
+    /**
+     * Number of states found so far.
+     */
+    private int states;
+
+    /**
+     * Creates a calculator for games between two strategies.
+     * @param ai1 AI in seat 1, a SmallestCardAI or BiggestCardAI.
+     * @param ai2 AI in seat 2, a SmallestCardAI or BiggestCardAI.
+     * @param rules rules of the games, small enough for supports(rules).
+     * @throws IllegalArgumentException if a strategy or the rules aren't supported.
+     */
+    public ExactWinCalculator(AI ai1, AI ai2, RuleSet rules) {
+        if (!supports(ai1) || !supports(ai2)) {
+            throw new IllegalArgumentException("Only SmallestCardAI and BiggestCardAI can be calculated: "
+                    + ai1 + ", " + ai2);
+        }
+        if (!supports(rules)) {
+            throw new IllegalArgumentException("Too many states to calculate: " + rules);
+        }
+        this.biggest1 = ai1.getClass() == BiggestCardAI.class;
+        this.biggest2 = ai2.getClass() == BiggestCardAI.class;
+        this.rules = rules;
+        this.cards = rules.getDeckSize();
+
+        // Numbering the cards in ascending order of code makes comparing indices compare codes
+        byte[] codes = new byte[cards];
+        rules.copyDeck(codes, 0);
+        Arrays.sort(codes);
+        this.playableOn = new int[cards];
+        for (int top = 0; top < cards; top++) {
+            long mask = rules.getTable().playableOn(codes[top]);
+            for (int card = 0; card < cards; card++) {
+                if ((mask >>> codes[card] & 1) != 0) {
+                    playableOn[top] |= 1 << card;
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines if an AI can be calculated, which needs it to choose from its hand and the top card only.
+     * @param ai the AI.
+     * @return true for SmallestCardAI and BiggestCardAI.
+     */
+    public static boolean supports(AI ai) {
+        Class<?> type = ai.getClass();
+        return type == SmallestCardAI.class || type == BiggestCardAI.class;
+    }
+
+    /**
+     * Determines if the games of a variant are small enough to calculate: one deck of at most
+     * MAX_CARDS cards, hands small enough for MAX_HAND_CARDS and at most MAX_ROUNDS rounds to
+     * win. A deck of 8 cards with hands of 2, or of 12 cards with hands of 1, takes a few million
+     * states and a few seconds.
+     * @param rules rules of the games.
+     * @return true if the games can be calculated.
+     */
+    public static boolean supports(RuleSet rules) {
+        return rules.getDecks() == 1 && rules.getDeckSize() <= MAX_CARDS
+                && rules.getHandSize() * rules.getDeckSize() <= MAX_HAND_CARDS
+                && rules.getRoundsToWin() <= MAX_ROUNDS;
+    }
+
+    /**
+     * Computes the probability that player 1 wins a game.
+     * @return exact win probability of player 1.
+     */
+    public double gameWinProbability() {
+        return solve(rules.getRoundsToWin());
+    }
+
+    /**
+     * Computes the probability that player 1 wins the first round of a game, which it starts.
+     * @return exact probability that player 1 wins round 1.
+     */
+    public double roundWinProbability() {
+        return solve(1);
+    }
+
+    /**
+     * Gets the number of states the last calculation went through.
+     * @return number of states.
+     */
+    public int getStates() {
+        return states;
+    }
+
+    /**
+     * Lists every state reachable from every deal and solves for player 1's win probability.
+     * @param roundsToWin rounds a player needs to win.
+     * @return average win probability over every deal.
+     * @throws IllegalStateException if the values don't settle.
+     */
+    private double solve(int roundsToWin) {
+        keys = new long[1 << 10];
+        table = new int[1 << 11];
+        firstSuccessor = new int[1 << 10];
+        successors = new int[1 << 12];
+        successorCount = 0;
+        states = 0;
+        int handSize = rules.getHandSize();
+        int full = (1 << cards) - 1;
+
+        // Every deal is equally likely: hand 1, then hand 2 from the rest, then the top card
+        int[] deals = new int[16];
+        int dealCount = 0;
+        for (int hand1 = 0; hand1 <= full; hand1++) {
+            if (Integer.bitCount(hand1) != handSize) {
+                continue;
+            }
+            // Hand 2 runs over the subsets of the cards hand 1 left
+            int rest = full & ~hand1;
+            for (int hand2 = rest; hand2 != 0; hand2 = (hand2 - 1) & rest) {
+                if (Integer.bitCount(hand2) != handSize) {
+                    continue;
+                }
+                for (int top = 0; top < cards; top++) {
+                    if (((rest & ~hand2) >>> top & 1) == 0) {
+                        continue;
+                    }
+                    int undrawn = rest & ~hand2 & ~(1 << top);
+                    if (dealCount == deals.length) {
+                        deals = Arrays.copyOf(deals, 2 * dealCount);
+                    }
+                    deals[dealCount++] = number(key(sorted(hand1), sorted(hand2), top, undrawn, 0, 0, 0));
+                }
+            }
+        }
+
+        // Find the successors of every state, which can find new states
+        double[] values = new double[0];
+        for (int state = 0; state < states; state++) {
+            if (state == values.length) {
+                values = Arrays.copyOf(values, Math.max(1 << 10, 2 * state));
+            }
+            if (state + 1 >= firstSuccessor.length) {
+                firstSuccessor = Arrays.copyOf(firstSuccessor, 2 * firstSuccessor.length);
+            }
+            firstSuccessor[state] = successorCount;
+            values[state] = expand(keys[state], roundsToWin);
+        }
+        firstSuccessor[states] = successorCount;
+
+        // Later states are deeper in the game, so sweeping from the last one settles most of them at once
+        for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+            double change = 0;
+            for (int state = states - 1; state >= 0; state--) {
+                int from = firstSuccessor[state];
+                int to = firstSuccessor[state + 1];
+                if (from == to) {
+                    // The game is over, and the value stays what expand found
+                    continue;
+                }
+                double sum = 0;
+                for (int i = from; i < to; i++) {
+                    sum += values[successors[i]];
+                }
+                double value = sum / (to - from);
+                change = Math.max(change, Math.abs(value - values[state]));
+                values[state] = value;
+            }
+            if (change <= PRECISION) {
+                double sum = 0;
+                for (int i = 0; i < dealCount; i++) {
+                    sum += values[deals[i]];
+                }
+                return sum / dealCount;
+            }
+        }
+        throw new IllegalStateException("The win probabilities didn't settle after " + MAX_SWEEPS + " sweeps");
+    }
+
+    /**
+     * Works out what happens in a state: either the game ends, or the player to move plays (or
+     * is stuck and a new round starts) and a card is drawn, which leads to one state per card.
+     * The successors are added to successors.
+     * @param key key of the state.
+     * @param roundsToWin rounds a player needs to win.
+     * @return 1 or 0 if the game ends with player 1 winning or losing, 0 otherwise.
+     */
+    private double expand(long key, int roundsToWin) {
+        int handSize = rules.getHandSize();
+        int undrawn = (int) (key & 0xffff);
+        int top = (int) (key >>> 16 & 0xf);
+        int mover = (int) (key >>> 20 & 1);
+        int wins1 = (int) (key >>> 21 & 7);
+        int wins2 = (int) (key >>> 24 & 7);
+        int[][] hands = {unpack(key >>> 27, handSize), unpack(key >>> 27 + 4 * handSize, handSize)};
+
+        int[] hand = hands[mover];
+        int played = choose(hand, top, mover == 0 ? biggest1 : biggest2);
+        int nextTop = top;
+        int nextMover = 1 - mover;
+        if (played < 0) {
+            // The player to move is stuck, so the other player wins the round and starts the next one
+            if (mover == 0) {
+                wins2++;
+            } else {
+                wins1++;
+            }
+            if (wins1 == roundsToWin || wins2 == roundsToWin) {
+                return wins1 == roundsToWin ? 1 : 0;
+            }
+        } else {
+            nextTop = hand[played];
+        }
+
+        // A used up deck is shuffled whole again, cards in hand and on the pile included
+        int deck = undrawn != 0 ? undrawn : (1 << cards) - 1;
+        if (successorCount + cards > successors.length) {
+            successors = Arrays.copyOf(successors, 2 * successors.length);
+        }
+        for (int rest = deck; rest != 0; rest &= rest - 1) {
+            int drawn = Integer.numberOfTrailingZeros(rest);
+            int[][] nextHands = {hands[0], hands[1]};
+            int cardOnTop = nextTop;
+            if (played < 0) {
+                // The drawn card starts the new round's pile
+                cardOnTop = drawn;
+            } else {
+                nextHands[mover] = replace(hand, played, drawn);
+            }
+            int successor = number(key(nextHands[0], nextHands[1], cardOnTop, deck & ~(1 << drawn),
+                    nextMover, wins1, wins2));
+            successors[successorCount++] = successor;
+        }
+        return 0;
+    }
+
+    /**
+     * Picks the card a strategy plays.
+     * @param hand sorted hand of the player.
+     * @param top index of the top card.
+     * @param biggest whether the player plays its biggest playable card rather than its smallest.
+     * @return position in the hand of the card played, or -1 if the player is stuck.
+     */
+    private int choose(int[] hand, int top, boolean biggest) {
+        int mask = playableOn[top];
+        if (biggest) {
+            for (int i = hand.length - 1; i >= 0; i--) {
+                if ((mask >>> hand[i] & 1) != 0) {
+                    return i;
+                }
+            }
+        } else {
+            for (int i = 0; i < hand.length; i++) {
+                if ((mask >>> hand[i] & 1) != 0) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Replaces a card of a sorted hand with a drawn card, keeping the hand sorted.
+     * @param hand sorted hand.
+     * @param position position of the card played.
+     * @param drawn index of the card drawn.
+     * @return new sorted hand.
+     */
+    private static int[] replace(int[] hand, int position, int drawn) {
+        int[] next = new int[hand.length];
+        int index = 0;
+        boolean placed = false;
+        for (int i = 0; i < hand.length; i++) {
+            if (i == position) {
+                continue;
+            }
+            if (!placed && drawn <= hand[i]) {
+                next[index++] = drawn;
+                placed = true;
+            }
+            next[index++] = hand[i];
+        }
+        if (!placed) {
+            next[index] = drawn;
+        }
+        return next;
+    }
+
+    /**
+     * Gets the number of a state, adding it to the states found if it is new.
+     * @param key key of the state.
+     * @return number of the state.
+     */
+    private int number(long key) {
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        while (table[slot] != 0) {
+            if (keys[table[slot] - 1] == key) {
+                return table[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (states == keys.length) {
+            keys = Arrays.copyOf(keys, 2 * states);
+        }
+        keys[states] = key;
+        table[slot] = ++states;
+        // Keep the table at most half full, so the probing stays short
+        if (2 * states > table.length) {
+            table = new int[2 * table.length];
+            mask = table.length - 1;
+            for (int state = 0; state < states; state++) {
+                slot = hash(keys[state]) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = state + 1;
+            }
+        }
+        return states - 1;
+    }
+
+    /**
+     * Spreads the bits of a key over the slots of the table.
+     * @param key key of a state.
+     * @return hash of the key.
+     */
+    private static int hash(long key) {
+        long mixed = key * 0x9e3779b97f4a7c15L;
+        return (int) (mixed >>> 32);
+    }
+
+    /**
+     * Packs a state into a key: 16 bits of undrawn cards, 4 bits of top card, 1 bit of the
+     * player to move, 3 bits of each score and 4 bits per card of each hand.
+     * @param hand1 sorted hand of player 1.
+     * @param hand2 sorted hand of player 2.
+     * @param top index of the top card.
+     * @param undrawn mask of the cards not drawn since the last shuffle.
+     * @param mover 0 if player 1 moves, 1 if player 2 does.
+     * @param wins1 rounds won by player 1.
+     * @param wins2 rounds won by player 2.
+     * @return key of the state.
+     */
+    private static long key(int[] hand1, int[] hand2, int top, int undrawn, int mover, int wins1, int wins2) {
+        return undrawn | (long) top << 16 | (long) mover << 20 | (long) wins1 << 21 | (long) wins2 << 24
+                | pack(hand1) << 27 | pack(hand2) << 27 + 4 * hand1.length;
+    }
+
+    /**
+     * Packs a sorted hand, 4 bits per card.
+     * @param hand sorted hand.
+     * @return packed hand.
+     */
+    private static long pack(int[] hand) {
+        long packed = 0;
+        for (int i = 0; i < hand.length; i++) {
+            packed |= (long) hand[i] << 4 * i;
+        }
+        return packed;
+    }
+
+    /**
+     * Unpacks a hand packed by pack.
+     * @param packed packed hand in the lowest bits.
+     * @param handSize number of cards in the hand.
+     * @return sorted hand.
+     */
+    private static int[] unpack(long packed, int handSize) {
+        int[] hand = new int[handSize];
+        for (int i = 0; i < handSize; i++) {
+            hand[i] = (int) (packed >>> 4 * i & 0xf);
+        }
+        return hand;
+    }
+
+    /**
+     * Lists the cards of a mask in ascending order.
+     * @param mask mask of card indices.
+     * @return sorted hand.
+     */
+    private static int[] sorted(int mask) {
+        int[] hand = new int[Integer.bitCount(mask)];
+        int index = 0;
+        for (int rest = mask; rest != 0; rest &= rest - 1) {
+            hand[index++] = Integer.numberOfTrailingZeros(rest);
+        }
+        return hand;
+    }
+
+    /**
+     * Calculates a small variant exactly for every pairing of SmallestCardAI and BiggestCardAI
+     * and compares the results with simulated games.
+     * @param args optional number of simulated games per matchup.
+     */
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        RuleSet variant = new RuleSet(2, 3, 1, 12, 13, PlayRule.STANDARD);
+        System.out.println(variant);
+        List<AI> ais = List.of(new SmallestCardAI(), new BiggestCardAI());
+        for (AI ai1 : ais) {
+            for (AI ai2 : ais) {
+                ExactWinCalculator calculator = new ExactWinCalculator(ai1, ai2, variant);
+                double round = calculator.roundWinProbability();
+                double game = calculator.gameWinProbability();
+                WinRateEstimate simulated = new WinRateEstimate(
+                        new BatchSimulator(ai1, ai2, 1, BatchSimulator.DEFAULT_LANES, variant).wins(0, games),
+                        games, WinRateEstimate.Z_95);
+                System.out.printf("%s vs. %s: round %.6f, game %.6f exactly (%d states), simulated %s%n",
+                        ai1, ai2, round, game, calculator.getStates(), simulated);
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package student;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes game events to a file in a compact binary format.
+ * The file starts with a 24-byte header: the magic number, the format version, the seed of the
+ * match and the fingerprint of its rules (see rulesFingerprint), so a replay can tell which rules
+ * the games were played with. Every event after it starts with one tag byte:
+ * <pre>
+ * 0-51     PLAY by player 1 of the card with code tag
+ * 52-103   PLAY by player 2 of the card with code tag - 52
+ * 104-106  DRAW by PILE, player 1 or player 2, followed by the card code in one byte
+ * 107-108  ROUND_END won by player 1 or player 2
+ * 109-110  GAME_END won by player 1 or player 2
+ * 111      GAME_START, followed by the game index as an 8-byte little-endian long
+ * </pre>
+ * Plays are nearly all of the events, so most events take one byte. The numbers of the rounds
+ * aren't stored, since the reader can count them.
+ * Draws (the starting hands, the pile cards and the card drawn after every play) are only logged
+ * when asked for: the deal of a game is fixed by the match seed and the game index, so replaying
+ * it with GameReplay doesn't need them, and logging them triples the size of a play.
+ * Events are collected in an array and written to the file channel in large batches, so logging
+ * costs little more than filling the array. Read logs back with GameEventReader.
+ * A log belongs to one match, so each thread writing events needs its own log file.
+ */
+public class GameEventLog implements GameEventSink, Closeable {
+
+    /**
+     * Magic number at the start of every log file ("UWEL").
+     */
+    public static final int MAGIC = 0x5557454c;
+
+    /**
+     * Version of the file format.
+     */
+    public static final int VERSION = 3;
+
+    /**
+     * Size of the file header in bytes.
+     */
+    public static final int HEADER_BYTES = 24;
+
+    /**
+     * Event type of a game starting.
+     */
+    public static final int GAME_START = 1;
+
+    /**
+     * Event type of a card drawn into a hand or onto the pile.
+     */
+    public static final int DRAW = 2;
+
+    /**
+     * Event type of a card played on the pile.
+     */
+    public static final int PLAY = 3;
+
+    /**
+     * Event type of a round ending.
+     */
+    public static final int ROUND_END = 4;
+
+    /**
+     * Event type of a game ending.
+     */
+    public static final int GAME_END = 5;
+
+    /**
+     * Tag of a DRAW by PILE; the players' draws follow it.
+     */
+    static final int DRAW_TAG = 2 * Card.NUM_CODES;
+
+    /**
+     * Tag of a ROUND_END won by player 1; player 2's follows it.
+     */
+    static final int ROUND_END_TAG = DRAW_TAG + 3;
+
+    /**
+     * Tag of a GAME_END won by player 1; player 2's follows it.
+     */
+    static final int GAME_END_TAG = ROUND_END_TAG + 2;
+
+    /**
+     * Tag of a GAME_START.
+     */
+    static final int GAME_START_TAG = GAME_END_TAG + 2;
+
+    /**
+     * Number of bytes collected before they are written to the file.
+     */
+    private static final int BATCH_BYTES = 1 << 16;
+
+    /**
+     * Largest number of bytes of one event.
+     */
+    private static final int MAX_EVENT_BYTES = 9;
+
+    /**
+     * Channel of the log file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Events collected since the last write.
+     */
+    private final byte[] events = new byte[BATCH_BYTES];
+
+    /**
+     * Number of bytes of events in use.
+     */
+    private int count;
+
+    /**
+     * Buffer the events are copied into to be written to the file.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Whether DRAW events are logged.
+     */
+    private final boolean logDraws;
+
+    /**
+     * Creates a new log file of a match with the standard rules, without DRAW events, replacing
+     * any file already there.
+     * @param file path of the log file.
+     * @param seed seed of the match being logged, stored in the header.
+     * @throws IOException if the file can't be created.
+     */
+    public GameEventLog(Path file, long seed) throws IOException {
+        this(file, seed, false, RuleSet.STANDARD);
+    }
+
+    /**
+     * Creates a new log file of a match with the standard rules, replacing any file already there.
+     * @param file path of the log file.
+     * @param seed seed of the match being logged, stored in the header.
+     * @param logDraws whether every card drawn is logged as well.
+     * @throws IOException if the file can't be created.
+     */
+    public GameEventLog(Path file, long seed, boolean logDraws) throws IOException {
+        this(file, seed, logDraws, RuleSet.STANDARD);
+    }
+
+    /**
+     * Creates a new log file, replacing any file already there.
+     * @param file path of the log file.
+     * @param seed seed of the match being logged, stored in the header.
+     * @param logDraws whether every card drawn is logged as well.
+     * @param rules rules of the match being logged, whose fingerprint is stored in the header.
+     * @throws IOException if the file can't be created.
+     */
+    public GameEventLog(Path file, long seed, boolean logDraws, RuleSet rules) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(BATCH_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        this.logDraws = logDraws;
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(seed).putLong(rulesFingerprint(rules));
+        buffer.flip();
+        write(buffer);
+    }
+
+    /**
+     * Gets the fingerprint of some rules as stored in the header: the one checkpoints and the
+     * result cache use (see ResultCache.fingerprint), read as a number.
+     * @param rules the rules.
+     * @return fingerprint of the rules.
+     */
+    static long rulesFingerprint(RuleSet rules) {
+        return Long.parseUnsignedLong(ResultCache.fingerprint(rules), 16);
+    }
+
+    /**
+     * Adds a byte of an event, writing the collected events out first if there may not be room
+     * for the whole event. Every event starts with a check, so the rest of it always fits.
+     * @param tag the byte.
+     */
+    private void write(int tag) {
+        if (count > BATCH_BYTES - MAX_EVENT_BYTES) {
+            flush();
+        }
+        events[count++] = (byte) tag;
+    }
+
+    /**
+     * Writes every collected event to the file.
+     */
+    public void flush() {
+        buffer.clear();
+        buffer.put(events, 0, count).flip();
+        count = 0;
+        write(buffer);
+    }
+
+    /**
+     * Writes the whole of a buffer to the file.
+     * @param bytes buffer positioned at the bytes to write.
+     */
+    private void write(ByteBuffer bytes) {
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records a game starting.
+     * @param gameIndex number of the game within its match.
+     */
+    @Override
+    public void gameStarted(long gameIndex) {
+        write(GAME_START_TAG);
+        for (int shift = 0; shift < 64; shift += 8) {
+            events[count++] = (byte) (gameIndex >>> shift);
+        }
+    }
+
+    /**
+     * Records a card drawn into a starting hand or onto the pile, if draws are logged.
+     * @param player player who drew the card, or PILE for the first card of a round.
+     * @param code code of the card drawn.
+     */
+    @Override
+    public void drew(int player, int code) {
+        if (logDraws) {
+            write(DRAW_TAG + player);
+            events[count++] = (byte) code;
+        }
+    }
+
+    /**
+     * Records a card played on the pile and, if draws are logged, the card drawn to replace it.
+     * @param player player who played the card.
+     * @param code code of the card played.
+     * @param drawnCode code of the card drawn to replace it.
+     */
+    @Override
+    public void played(int player, int code, int drawnCode) {
+        write((player - 1) * Card.NUM_CODES + code);
+        if (logDraws) {
+            drew(player, drawnCode);
+        }
+    }
+
+    /**
+     * Records a round ending. The round number isn't stored, since the rounds are logged in order.
+     * @param winner player who won the round.
+     * @param round number of the round, starting from 1.
+     */
+    @Override
+    public void roundEnded(int winner, int round) {
+        write(ROUND_END_TAG + winner - 1);
+    }
+
+    /**
+     * Records a game ending. The number of rounds isn't stored, since the reader counts them.
+     * @param winner player who won the game.
+     * @param rounds number of rounds the game took.
+     */
+    @Override
+    public void gameEnded(int winner, int rounds) {
+        write(GAME_END_TAG + winner - 1);
+    }
+
+    /**
+     * Writes the remaining events and closes the file.
+     * @throws IOException if the file can't be written or closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package student;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams the events of a log written by GameEventLog.
+ * The reader is a cursor: next() moves to the following event, whose fields are then read with
+ * getType(), getPlayer(), getCode() and getValue(). Only one buffer of events is in memory at a
+ * time, so logs of any size can be read, and reading creates no objects per event.
+ * The log doesn't store round numbers, so the reader counts the rounds of the current game.
+ */
+public class GameEventReader implements Closeable {
+
+    /**
+     * Number of bytes read from the file at once.
+     */
+    private static final int BATCH_BYTES = 1 << 16;
+
+    /**
+     * Channel of the log file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Buffer holding the events read but not yet visited.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Seed of the logged match, from the header.
+     */
+    private final long seed;
+
+    /**
+     * Fingerprint of the rules of the logged match, from the header.
+     */
+    private final long rulesFingerprint;
+
+    /**
+     * Type of the current event.
+     */
+    private int type;
+
+    /**
+     * Player of the current event.
+     */
+    private int player;
+
+    /**
+     * Card code of the current event.
+     */
+    private int code;
+
+    /**
+     * Value of the current event.
+     */
+    private long value;
+
+    /**
+     * Number of rounds ended so far in the current game.
+     */
+    private int rounds;
+
+    /**
+     * Opens a log file and reads its header.
+     * @param file path of the log file.
+     * @throws IOException if the file can't be read or isn't an event log.
+     */
+    public GameEventReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.buffer = ByteBuffer.allocateDirect(BATCH_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.limit(0);
+        if (!fill(GameEventLog.HEADER_BYTES) || buffer.getInt() != GameEventLog.MAGIC) {
+            channel.close();
+            throw new IOException("Not a game event log: " + file);
+        }
+        int version = buffer.getInt();
+        if (version != GameEventLog.VERSION) {
+            channel.close();
+            throw new IOException("Unsupported event log version " + version + ": " + file);
+        }
+        this.seed = buffer.getLong();
+        this.rulesFingerprint = buffer.getLong();
+    }
+
+    /**
+     * Reads from the file until the buffer holds at least the given number of bytes or the file ends.
+     * @param bytes number of bytes needed.
+     * @return true if the bytes are there, false if the file ended first.
+     * @throws IOException if the file can't be read.
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+
+    /**
+     * Gets the seed of the logged match.
+     * @return seed stored in the header.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Determines if the match was logged with the given rules.
+     * @param rules the rules.
+     * @return true if the fingerprint in the header is the one of the rules.
+     */
+    public boolean isLoggedWith(RuleSet rules) {
+        return rulesFingerprint == GameEventLog.rulesFingerprint(rules);
+    }
+
+    /**
+     * Moves to the next event.
+     * @return true if there is another event, false at the end of the log.
+     * @throws IOException if the file can't be read.
+     */
+    public boolean next() throws IOException {
+        if (!fill(1)) {
+            return false;
+        }
+        int tag = buffer.get() & 0xFF;
+        player = 0;
+        code = 0;
+        value = 0;
+        if (tag < GameEventLog.DRAW_TAG) {
+            type = GameEventLog.PLAY;
+            player = tag < Card.NUM_CODES ? 1 : 2;
+            code = tag - (player - 1) * Card.NUM_CODES;
+        } else if (tag < GameEventLog.ROUND_END_TAG) {
+            type = GameEventLog.DRAW;
+            player = tag - GameEventLog.DRAW_TAG;
+            code = (int) read(1) & 0xFF;
+        } else if (tag < GameEventLog.GAME_END_TAG) {
+            type = GameEventLog.ROUND_END;
+            player = tag - GameEventLog.ROUND_END_TAG + 1;
+            value = ++rounds;
+        } else if (tag < GameEventLog.GAME_START_TAG) {
+            type = GameEventLog.GAME_END;
+            player = tag - GameEventLog.GAME_END_TAG + 1;
+            value = rounds;
+        } else if (tag == GameEventLog.GAME_START_TAG) {
+            type = GameEventLog.GAME_START;
+            value = read(Long.BYTES);
+            rounds = 0;
+        } else {
+            throw new IOException("Unknown event tag " + tag);
+        }
+        return true;
+    }
+
+    /**
+     * Reads the rest of an event.
+     * @param bytes number of bytes, 1 or Long.BYTES.
+     * @return the byte or the little-endian long.
+     * @throws IOException if the file can't be read or ends in the middle of the event.
+     */
+    private long read(int bytes) throws IOException {
+        if (!fill(bytes)) {
+            throw new IOException("The log ends in the middle of an event");
+        }
+        return bytes == 1 ? buffer.get() : buffer.getLong();
+    }
+
+    /**
+     * Gets the type of the current event, such as GameEventLog.PLAY.
+     * @return event type.
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * Gets the player of the current event.
+     * @return player number, or GameEventSink.PILE.
+     */
+    public int getPlayer() {
+        return player;
+    }
+
+    /**
+     * Gets the card code of the current event.
+     * @return card code.
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Gets the value of the current event: the game index, the round number or the number of
+     * rounds, 0 for a PLAY or DRAW. A play's replacement card is only in the log when draws are
+     * logged, as the DRAW event right after the PLAY.
+     * @return value of the event.
+     */
+    public long getValue() {
+        return value;
+    }
+
+    /**
+     * Closes the log file.
+     * @throws IOException if the file can't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
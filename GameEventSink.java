@@ -0,0 +1,49 @@
+package student;
+
+/**
+ * Receives the events of Uno War games as they happen: plays, draws, round ends and game results.
+ * A match only reports events when a sink is set, so games without a sink pay nothing.
+ * Players are numbered 1 and 2, and cards are given as card codes (see Card.getCode).
+ */
+public interface GameEventSink {
+
+    /**
+     * Player number used for cards drawn onto the pile at the start of a round.
+     */
+    int PILE = 0;
+
+    /**
+     * A game is starting.
+     * @param gameIndex number of the game within its match.
+     */
+    void gameStarted(long gameIndex);
+
+    /**
+     * A card was drawn from the deck into a starting hand, or onto the pile to start a round.
+     * @param player player who drew the card, or PILE for the first card of a round.
+     * @param code code of the card drawn.
+     */
+    void drew(int player, int code);
+
+    /**
+     * A card was played on the pile, and the player drew a card from the deck to replace it.
+     * @param player player who played the card.
+     * @param code code of the card played.
+     * @param drawnCode code of the card drawn to replace it.
+     */
+    void played(int player, int code, int drawnCode);
+
+    /**
+     * A round ended.
+     * @param winner player who won the round.
+     * @param round number of the round, starting from 1.
+     */
+    void roundEnded(int winner, int round);
+
+    /**
+     * A game ended.
+     * @param winner player who won the game.
+     * @param rounds number of rounds the game took.
+     */
+    void gameEnded(int winner, int rounds);
+}
@@ -0,0 +1,430 @@
+package student;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Replays a single game of a match from its recorded plays, without asking any AI for a decision.
+ * Every game of a match is dealt from the match seed, the game index and the rules, so the plays
+ * of both players are all that is needed to rebuild it card by card. The plays can come from an event log
+ * written by GameEventLog, or be recorded by playing the game again with the same AIs.
+ * A replay can be fast-forwarded to the start of any round and then finished with the recorded
+ * plays, or handed over to other AIs from that point on, to see where two strategies part ways.
+ */
+public class GameReplay {
+
+    /**
+     * Marks the end of a round a player lost in a script of plays.
+     */
+    private static final int STUCK = -1;
+
+    /**
+     * Seed of the match the game belongs to.
+     */
+    private final long seed;
+
+    /**
+     * Index of the game within its match.
+     */
+    private final long gameIndex;
+
+    /**
+     * Player that won the recorded game, 1 or 2.
+     */
+    private final int recordedWinner;
+
+    /**
+     * Stand-in for player 1 that plays player 1's recorded cards.
+     */
+    private final ScriptedAI player1;
+
+    /**
+     * Stand-in for player 2 that plays player 2's recorded cards.
+     */
+    private final ScriptedAI player2;
+
+    /**
+     * Match that deals the game and applies the plays.
+     */
+    private final UnoWarMatch match;
+
+    /**
+     * Creates the replay of a game from the recorded plays of both players.
+     * Each script lists the codes of the cards a player played, in order, with STUCK where the
+     * player couldn't play and lost the round.
+     * @param seed seed of the match the game belongs to.
+     * @param gameIndex index of the game within its match.
+     * @param rules rules the game was played with.
+     * @param plays1 script of player 1.
+     * @param plays2 script of player 2.
+     * @param recordedWinner player that won the recorded game, 1 or 2.
+     */
+    private GameReplay(long seed, long gameIndex, RuleSet rules, int[] plays1, int[] plays2, int recordedWinner) {
+        this.seed = seed;
+        this.gameIndex = gameIndex;
+        this.recordedWinner = recordedWinner;
+        this.player1 = new ScriptedAI(plays1);
+        this.player2 = new ScriptedAI(plays2);
+        this.match = new UnoWarMatch(player1, player2, seed, rules);
+        match.deal(gameIndex);
+    }
+
+    /**
+     * Records a game with the standard rules by playing it with the given AIs, then returns its replay.
+     * @param ai1 AI for player 1.
+     * @param ai2 AI for player 2.
+     * @param seed seed of the match the game belongs to, such as TournamentScheduler.matchupSeed.
+     * @param gameIndex index of the game within its match.
+     * @return replay of the game, positioned before its first round.
+     */
+    public static GameReplay record(AI ai1, AI ai2, long seed, long gameIndex) {
+        return record(ai1, ai2, seed, gameIndex, RuleSet.STANDARD);
+    }
+
+    /**
+     * Records a game by playing it with the given AIs, then returns its replay.
+     * The AIs must play the same way every time for the replay to show the game of the original
+     * run, which holds for every deterministic AI and for an OracleAI or MonteCarloAI without a
+     * time budget, like the default ones. The rules must be those of the original run too, such
+     * as the ones given to TournamentScheduler.setRules.
+     * @param ai1 AI for player 1.
+     * @param ai2 AI for player 2.
+     * @param seed seed of the match the game belongs to, such as TournamentScheduler.matchupSeed.
+     * @param gameIndex index of the game within its match.
+     * @param rules rules the game is played with.
+     * @return replay of the game, positioned before its first round.
+     */
+    public static GameReplay record(AI ai1, AI ai2, long seed, long gameIndex, RuleSet rules) {
+        Recorder recorder = new Recorder();
+        UnoWarMatch match = new UnoWarMatch(ai1.copy(), ai2.copy(), seed, rules);
+        match.setEventSink(recorder);
+        match.playGame(gameIndex);
+        return recorder.toReplay(seed, gameIndex, rules);
+    }
+
+    /**
+     * Reads the plays of a game with the standard rules from an event log and returns its replay.
+     * @param file event log written by GameEventLog.
+     * @param gameIndex index of the game within the logged match.
+     * @return replay of the game, positioned before its first round.
+     * @throws IOException if the log can't be read, was logged with other rules or doesn't hold the whole game.
+     */
+    public static GameReplay fromLog(Path file, long gameIndex) throws IOException {
+        return fromLog(file, gameIndex, RuleSet.STANDARD);
+    }
+
+    /**
+     * Reads the plays of a game from an event log and returns its replay.
+     * @param file event log written by GameEventLog.
+     * @param gameIndex index of the game within the logged match.
+     * @param rules rules the match was logged with.
+     * @return replay of the game, positioned before its first round.
+     * @throws IOException if the log can't be read, was logged with other rules or doesn't hold the whole game.
+     */
+    public static GameReplay fromLog(Path file, long gameIndex, RuleSet rules) throws IOException {
+        try (GameEventReader reader = new GameEventReader(file)) {
+            if (!reader.isLoggedWith(rules)) {
+                throw new IOException(file + " was logged with other rules than " + rules);
+            }
+            // Skip to the start of the game
+            boolean found = false;
+            while (!found && reader.next()) {
+                found = reader.getType() == GameEventLog.GAME_START && reader.getValue() == gameIndex;
+            }
+            if (!found) {
+                throw new IOException("Game " + gameIndex + " isn't in " + file);
+            }
+            Recorder recorder = new Recorder();
+            while (reader.next() && reader.getType() != GameEventLog.GAME_START) {
+                switch (reader.getType()) {
+                    case GameEventLog.PLAY:
+                        recorder.played(reader.getPlayer(), reader.getCode(), (int) reader.getValue());
+                        break;
+                    case GameEventLog.ROUND_END:
+                        recorder.roundEnded(reader.getPlayer(), (int) reader.getValue());
+                        break;
+                    case GameEventLog.GAME_END:
+                        recorder.gameEnded(reader.getPlayer(), (int) reader.getValue());
+                        return recorder.toReplay(reader.getSeed(), gameIndex, rules);
+                    default:
+                        break;
+                }
+            }
+            throw new IOException("Game " + gameIndex + " doesn't end in " + file);
+        }
+    }
+
+    /**
+     * Plays the recorded rounds until the given round is the next one to be played.
+     * The deck is dealt exactly as in the recorded game, so the hands, the deck and the scores are
+     * those the players had at the start of that round.
+     * @param targetRound round to stop before, starting from 1. Rounds already played stay played.
+     */
+    public void fastForward(int targetRound) {
+        while (match.getRound() < targetRound && !match.isGameOver()) {
+            match.playRound();
+        }
+    }
+
+    /**
+     * Plays the rest of the game with the recorded plays.
+     * @return true if player 1 wins or false if player 2 wins.
+     */
+    public boolean finish() {
+        while (!match.isGameOver()) {
+            match.playRound();
+        }
+        return match.getNumWins1() == match.getRules().getRoundsToWin();
+    }
+
+    /**
+     * Plays the rest of the game with the given AIs instead of the recorded plays, starting from
+     * the round the replay is at. Both AIs start the game with the hands as they are now.
+     * @param ai1 AI that takes over player 1.
+     * @param ai2 AI that takes over player 2.
+     * @return true if player 1 wins or false if player 2 wins.
+     */
+    public boolean resume(AI ai1, AI ai2) {
+        AI second = ai2 == ai1 ? ai2.copy() : ai2;
+        ai1.startGame(match.getHand1(), match.getHand2());
+        second.startGame(match.getHand2(), match.getHand1());
+        player1.takeOver(ai1);
+        player2.takeOver(second);
+        return finish();
+    }
+
+    /**
+     * Gets the seed of the match the game belongs to.
+     * @return seed of the match.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the index of the game within its match.
+     * @return index of the game.
+     */
+    public long getGameIndex() {
+        return gameIndex;
+    }
+
+    /**
+     * Gets the player that won the recorded game.
+     * @return 1 or 2.
+     */
+    public int getRecordedWinner() {
+        return recordedWinner;
+    }
+
+    /**
+     * Gets the number of the next round to be played.
+     * @return round number, starting from 1.
+     */
+    public int getRound() {
+        return match.getRound();
+    }
+
+    /**
+     * Gets the number of rounds player 1 has won so far.
+     * @return rounds won by player 1.
+     */
+    public int getNumWins1() {
+        return match.getNumWins1();
+    }
+
+    /**
+     * Gets the number of rounds player 2 has won so far.
+     * @return rounds won by player 2.
+     */
+    public int getNumWins2() {
+        return match.getNumWins2();
+    }
+
+    /**
+     * Gets the hand of player 1 as it is now.
+     * @return hand of player 1.
+     */
+    public Hand getHand1() {
+        return match.getHand1();
+    }
+
+    /**
+     * Gets the hand of player 2 as it is now.
+     * @return hand of player 2.
+     */
+    public Hand getHand2() {
+        return match.getHand2();
+    }
+
+    /**
+     * Describes the replay.
+     * @return game, round and score as a string.
+     */
+    @Override
+    public String toString() {
+        return String.format("Game %d of seed %d, round %d, score %d-%d", gameIndex, seed,
+                match.getRound(), match.getNumWins1(), match.getNumWins2());
+    }
+
+    /**
+     * Stand-in for a player that plays the player's recorded cards, until another AI takes over.
+     * It checks every recorded play against the game being rebuilt, so a log that doesn't belong
+     * to the seed fails loudly instead of replaying a different game.
+     */
+    private static final class ScriptedAI extends AI {
+
+        /**
+         * Codes of the cards played in order, with STUCK where the player lost a round.
+         */
+        private final int[] plays;
+
+        /**
+         * Position of the next play in plays.
+         */
+        private int next;
+
+        /**
+         * AI that plays instead of the script once it took over, or null.
+         */
+        private AI live;
+
+        /**
+         * Creates a stand-in playing a script.
+         * @param plays codes of the cards played in order, with STUCK where the player lost a round.
+         */
+        ScriptedAI(int[] plays) {
+            this.plays = plays;
+        }
+
+        /**
+         * Hands the rest of the game over to another AI.
+         * @param ai AI that plays from now on.
+         */
+        void takeOver(AI ai) {
+            this.live = ai;
+        }
+
+        /**
+         * Gets the next recorded play, or the choice of the AI that took over.
+         * @param hand of cards AI has to choose from.
+         * @param cardPile object used to make decision.
+         * @return card played, null if the player was stuck.
+         */
+        @Override
+        public Card getPlay(Hand hand, CardPile cardPile) {
+            if (live != null) {
+                return live.getPlay(hand, cardPile);
+            }
+            if (next >= plays.length) {
+                throw new IllegalStateException("The recorded plays ended before the game did");
+            }
+            int code = plays[next++];
+            if (code == STUCK) {
+                if (hand.hasPlayable(cardPile)) {
+                    throw new IllegalStateException("Recorded as stuck while holding a playable card");
+                }
+                return null;
+            }
+            if ((hand.getMask() & 1L << code) == 0 || !cardPile.canPlayCode(code)) {
+                throw new IllegalStateException("Recorded play " + Card.fromCode(code)
+                        + " isn't possible in this game");
+            }
+            return Card.fromCode(code);
+        }
+    }
+
+    /**
+     * Sink that collects the plays of one game into a script per player.
+     */
+    private static final class Recorder implements GameEventSink {
+
+        /**
+         * Scripts of player 1 and player 2, at index 1 and 2.
+         */
+        private final int[][] plays = new int[3][64];
+
+        /**
+         * Length of the scripts of player 1 and player 2, at index 1 and 2.
+         */
+        private final int[] lengths = new int[3];
+
+        /**
+         * Player that won the game, 0 until it ended.
+         */
+        private int winner;
+
+        /**
+         * Adds one entry to a player's script.
+         * @param player 1 or 2.
+         * @param code card code, or STUCK.
+         */
+        private void add(int player, int code) {
+            if (lengths[player] == plays[player].length) {
+                plays[player] = Arrays.copyOf(plays[player], 2 * lengths[player]);
+            }
+            plays[player][lengths[player]++] = code;
+        }
+
+        /**
+         * Builds the replay of the recorded game.
+         * @param seed seed of the match.
+         * @param gameIndex index of the game.
+         * @param rules rules the game was played with.
+         * @return replay of the game.
+         */
+        GameReplay toReplay(long seed, long gameIndex, RuleSet rules) {
+            return new GameReplay(seed, gameIndex, rules, Arrays.copyOf(plays[1], lengths[1]),
+                    Arrays.copyOf(plays[2], lengths[2]), winner);
+        }
+
+        /**
+         * Ignores the start of the game, since the replay knows which game it is.
+         * @param gameIndex index of the game within its match.
+         */
+        @Override
+        public void gameStarted(long gameIndex) {
+        }
+
+        /**
+         * Ignores a card drawn, since the replay deals the same cards from the seed.
+         * @param player player who drew the card, or PILE.
+         * @param code code of the card drawn.
+         */
+        @Override
+        public void drew(int player, int code) {
+        }
+
+        /**
+         * Adds a card played to the player's script.
+         * @param player player who played the card.
+         * @param code code of the card played.
+         * @param drawnCode code of the card drawn to replace it.
+         */
+        @Override
+        public void played(int player, int code, int drawnCode) {
+            add(player, code);
+        }
+
+        /**
+         * Marks in the loser's script that the loser was stuck.
+         * @param winner player who won the round.
+         * @param round number of the round.
+         */
+        @Override
+        public void roundEnded(int winner, int round) {
+            // The other player couldn't play
+            add(3 - winner, STUCK);
+        }
+
+        /**
+         * Remembers who won the game.
+         * @param winner player who won the game.
+         * @param rounds number of rounds played.
+         */
+        @Override
+        public void gameEnded(int winner, int rounds) {
+            this.winner = winner;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package student;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Checks that replays rebuild logged and recorded games exactly.
+ */
+public class GameReplayTest {
+    public static void main(String[] args) throws IOException {
+        long seed = 9;
+        int games = 300;
+        AI random = new AI();
+        AI biggest = new BiggestCardAI();
+        AI smallest = new SmallestCardAI();
+
+        // Log a match, remembering who won every game
+        Path file = Files.createTempFile("replay", ".log");
+        boolean[] results = new boolean[games];
+        UnoWarMatch match = new UnoWarMatch(random, biggest, seed);
+        try (GameEventLog log = new GameEventLog(file, seed)) {
+            match.setEventSink(log);
+            for (int i = 0; i < games; i++) {
+                results[i] = match.playGame(i);
+            }
+        }
+
+        // loop should print nothing!
+        for (int i = 0; i < games; i++) {
+            GameReplay recorded = GameReplay.record(random, biggest, seed, i);
+            GameReplay logged = GameReplay.fromLog(file, i);
+            if ((recorded.getRecordedWinner() == 1) != results[i] || (logged.getRecordedWinner() == 1) != results[i]) {
+                System.out.println("Game " + i + ": wrong recorded winner");
+            }
+            // Both replays must be at the same point after fast-forwarding
+            recorded.fastForward(4);
+            logged.fastForward(4);
+            if (!recorded.toString().equals(logged.toString())
+                    || recorded.getHand1().getMask() != logged.getHand1().getMask()
+                    || recorded.getHand2().getMask() != logged.getHand2().getMask()) {
+                System.out.println("Game " + i + ": replays differ at round 4: " + recorded + " vs. " + logged);
+            }
+            if (recorded.finish() != results[i] || logged.finish() != results[i]) {
+                System.out.println("Game " + i + ": replay has another winner");
+            }
+        }
+
+        // Handing a replay back to the AIs that played it must give the same game
+        UnoWarMatch plain = new UnoWarMatch(smallest, biggest, seed);
+        for (int i = 0; i < games; i++) {
+            boolean won = plain.playGame(i);
+            GameReplay replay = GameReplay.record(smallest, biggest, seed, i);
+            replay.fastForward(1 + i % 10);
+            if (replay.resume(smallest, biggest) != won) {
+                System.out.println("Game " + i + ": resumed game has another winner");
+            }
+        }
+
+        // Games of a variant must be recorded and replayed with its rules
+        // loop should print nothing!
+        RuleSet variant = new RuleSet(7, 5, 2, 2, 9, (top, card) -> card.getSuitNum() == top.getSuitNum()
+                || card.getRankNum() > top.getRankNum());
+        Path variantFile = Files.createTempFile("variant", ".log");
+        UnoWarMatch varied = new UnoWarMatch(smallest, biggest, seed, variant);
+        try (GameEventLog log = new GameEventLog(variantFile, seed, false, variant)) {
+            varied.setEventSink(log);
+            for (int i = 0; i < games; i++) {
+                results[i] = varied.playGame(i);
+            }
+        }
+        for (int i = 0; i < games; i++) {
+            GameReplay replay = GameReplay.record(smallest, biggest, seed, i, variant);
+            if ((replay.getRecordedWinner() == 1) != results[i] || replay.finish() != results[i]) {
+                System.out.println("Game " + i + " of the variant has another winner");
+            }
+            if (GameReplay.fromLog(variantFile, i, variant).finish() != results[i]) {
+                System.out.println("Game " + i + " of the variant has another winner in the log");
+            }
+        }
+
+        System.out.println(GameReplay.fromLog(file, 0).getRound());      // should print 1
+        try {
+            GameReplay.fromLog(file, games);                            // should print Game 300 isn't in ...
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+        try {
+            GameReplay.fromLog(variantFile, 0);                         // should print <log file> was logged with other rules than 5 cards, ...
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+        Files.delete(file);
+        Files.delete(variantFile);
+    }
+}
+// Expected prints:
+/*
+1
+Game 300 isn't in <log file>
+<log file> was logged with other rules than 5 cards, 10 rounds, 1 deck(s) of ranks 1 to 13
+ */
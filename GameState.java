@@ -0,0 +1,593 @@
+package student;
+import java.util.Arrays;
+
+/**
+ * The complete state of an Uno War game, flattened into primitive fields and arrays so it can be
+ * copied and changed without creating objects. It holds both hands, the deck order and cursor,
+ * the state of the deck's random number generator, the top card and size of the pile, whose
+ * turn it is, the round and the score.
+ * Moves are applied with play() and endRound(), which draw from the deck exactly like Deck and
+ * Hand do, reshuffles included, so a state follows the same game as UnoWarMatch. Every move can
+ * be taken back with undo() and applied again with redo(), and copyInto() copies the whole state
+ * into another one, so a search can branch from a position without copying any object graph.
+ * Players are numbered 1 and 2 like in UnoWarMatch.
+ */
+public final class GameState {
+
+    /**
+     * Move code of ending a round, stored instead of a card code.
+     */
+    private static final int END_ROUND = 0xff;
+
+    /**
+     * Number of moves the history holds before it grows.
+     */
+    private static final int INITIAL_HISTORY = 256;
+
+    /**
+     * Number of cards in each hand.
+     */
+    private final int handSize;
+
+    /**
+     * Number of rounds a player needs to win the game.
+     */
+    private final int roundsToWin;
+
+    /**
+     * Rules the deck is built from when a game is dealt.
+     */
+    private final RuleSet rules;
+
+    /**
+     * Table of which cards can be played on which top card.
+     */
+    private PlayTable table;
+
+    /**
+     * Codes of the cards in the deck, in dealing order.
+     */
+    private final byte[] deck;
+
+    /**
+     * Index of the card drawn last, as in Deck.
+     */
+    private int nextToDraw;
+
+    /**
+     * Number of cards drawn since the last shuffle, as in Deck.
+     */
+    private int cardsGone;
+
+    /**
+     * Generator the deck shuffles with. Only its state is ever copied.
+     */
+    private final SplitMixRandom random = new SplitMixRandom(0);
+
+    /**
+     * Codes of the cards in the hands, player 1's slots first, then player 2's.
+     */
+    private final byte[] hands;
+
+    /**
+     * Bit masks of the card codes in the hands of player 1 and player 2, at index 1 and 2.
+     */
+    private final long[] masks = new long[3];
+
+    /**
+     * Rounds won by player 1 and player 2, at index 1 and 2.
+     */
+    private final int[] wins = new int[3];
+
+    /**
+     * Code of the top card of the pile.
+     */
+    private int topCode;
+
+    /**
+     * Number of cards on the pile.
+     */
+    private int pileSize;
+
+    /**
+     * Player whose turn it is.
+     */
+    private int turn;
+
+    /**
+     * Number of the round being played.
+     */
+    private int round;
+
+    /**
+     * For every move in the history: the move, the hand slot it used and the deck cursor, top
+     * card and turn from before it, packed by pack().
+     */
+    private long[] history = new long[INITIAL_HISTORY];
+
+    /**
+     * For every move in the history: the state of the random number generator before it.
+     */
+    private long[] historyRandom = new long[INITIAL_HISTORY];
+
+    /**
+     * For every move in the history: the size of the pile before it.
+     */
+    private int[] historyPileSize = new int[INITIAL_HISTORY];
+
+    /**
+     * Number of moves in the history, including the ones taken back that can be redone.
+     */
+    private int historySize;
+
+    /**
+     * Number of moves in the history that are applied.
+     */
+    private int applied;
+
+    /**
+     * Swap positions of a shuffle being taken back.
+     */
+    private final int[] swaps;
+
+    /**
+     * Creates an empty state for hands of 5 cards and the standard rules.
+     * It holds no game until deal() or capture() fills it.
+     */
+    public GameState() {
+        this(5, PlayTable.STANDARD);
+    }
+
+    /**
+     * Creates an empty state for games with the standard deck, played to 10 rounds.
+     * @param handSize number of cards in each hand.
+     * @param table table of which cards can be played on which top card.
+     */
+    public GameState(int handSize, PlayTable table) {
+        this(handSize, table, RuleSet.STANDARD);
+    }
+
+    /**
+     * Creates an empty state for the games of a variant.
+     * @param rules rules of the games the state will hold.
+     */
+    public GameState(RuleSet rules) {
+        this(rules.getHandSize(), rules.getTable(), rules);
+    }
+
+    /**
+     * Creates an empty state with the deck and rounds to win of a rule set.
+     * @param handSize number of cards in each hand.
+     * @param table table of which cards can be played on which top card.
+     * @param rules rules the deck and the rounds to win are taken from.
+     */
+    private GameState(int handSize, PlayTable table, RuleSet rules) {
+        if (handSize < 1 || 2 * handSize >= rules.getDeckSize()) {
+            throw new IllegalArgumentException("Invalid hand size: " + handSize);
+        }
+        this.handSize = handSize;
+        this.table = table;
+        this.rules = rules;
+        this.roundsToWin = rules.getRoundsToWin();
+        this.deck = new byte[rules.getDeckSize()];
+        this.swaps = new int[deck.length];
+        this.hands = new byte[2 * handSize];
+    }
+
+    /**
+     * Deals game number gameIndex of a match exactly like UnoWarMatch does, and draws the first
+     * card of round 1, which player 1 starts.
+     * @param seed seed of the match.
+     * @param gameIndex number of the game within the match.
+     */
+    public void deal(long seed, long gameIndex) {
+        random.setSeed(SplitMixRandom.seedFor(seed, gameIndex));
+        rules.copyDeck(deck, 0);
+        shuffle();
+        nextToDraw = 0;
+        cardsGone = 0;
+        for (int i = 0; i < hands.length; i++) {
+            hands[i] = (byte) drawCode();
+        }
+        updateMask(1);
+        updateMask(2);
+        wins[1] = 0;
+        wins[2] = 0;
+        round = 1;
+        turn = 1;
+        topCode = drawCode();
+        pileSize = 1;
+        clearHistory();
+    }
+
+    /**
+     * Captures the state of a match in the middle of a game.
+     * Between two rounds, the state is taken at the end of the round just played, with the stuck
+     * player to move, so endRound() starts the next round exactly like the match would.
+     * @param match match whose current game is captured.
+     * @throws IllegalStateException if no round of the game was started yet.
+     * @throws IllegalArgumentException if the match is played to another number of rounds or
+     *         with another size of deck or hand.
+     */
+    public void capture(UnoWarMatch match) {
+        if (match.getCardPile() == null) {
+            throw new IllegalStateException("No round has been started yet");
+        }
+        if (match.getRules().getRoundsToWin() != roundsToWin) {
+            throw new IllegalArgumentException("The match is played to " + match.getRules().getRoundsToWin()
+                    + " rounds, not " + roundsToWin);
+        }
+        int stuck = match.getWinner() == 0 ? 0 : match.getTurn();
+        capture(match.getHand1(), match.getHand2(), match.getCardPile());
+        turn = match.getTurn();
+        round = match.getRound();
+        wins[1] = match.getNumWins1();
+        wins[2] = match.getNumWins2();
+        if (stuck != 0) {
+            // The match already counted the round the stuck player lost
+            round--;
+            wins[3 - stuck]--;
+        }
+    }
+
+    /**
+     * Captures the position an AI sees when it is asked for a card: the player to move becomes
+     * player 1, the round becomes round 1 and the score 0 to 0.
+     * @param toMove hand of the player to move.
+     * @param other hand of the other player, drawing from the same deck.
+     * @param cardPile pile of the round.
+     * @throws IllegalArgumentException if the hands don't fit this state or their deck can't be copied.
+     */
+    public void capture(Hand toMove, Hand other, CardPile cardPile) {
+        Deck source = toMove.getDeck();
+        if (other.getDeck() != source) {
+            throw new IllegalArgumentException("Both hands must draw from the same deck");
+        }
+        if (toMove.getSize() != handSize || other.getSize() != handSize) {
+            throw new IllegalArgumentException("Hands must hold " + handSize + " cards");
+        }
+        if (source.getSize() != deck.length) {
+            throw new IllegalArgumentException("The deck must hold " + deck.length + " cards");
+        }
+        if (!(source.getRandom() instanceof SplitMixRandom)) {
+            throw new IllegalArgumentException("Only decks shuffled by a SplitMixRandom can be captured");
+        }
+        // Copying the order finishes the deck's shuffle, which moves its generator on
+        source.copyOrder(deck);
+        random.setSeed(((SplitMixRandom) source.getRandom()).getState());
+        nextToDraw = source.getNextToDraw();
+        cardsGone = source.getCardsGone();
+        for (int i = 0; i < handSize; i++) {
+            hands[i] = (byte) toMove.getCode(i);
+            hands[handSize + i] = (byte) other.getCode(i);
+        }
+        updateMask(1);
+        updateMask(2);
+        table = cardPile.getTable();
+        topCode = cardPile.getTopCode();
+        pileSize = cardPile.getNumCards();
+        turn = 1;
+        round = 1;
+        wins[1] = 0;
+        wins[2] = 0;
+        clearHistory();
+    }
+
+    /**
+     * Copies this state into another one without creating any object. The target's history is
+     * cleared, so it can't take back the moves that led here.
+     * @param target state to overwrite, with the same hand size.
+     */
+    public void copyInto(GameState target) {
+        if (target.handSize != handSize) {
+            throw new IllegalArgumentException("Hand sizes differ: " + handSize + " and " + target.handSize);
+        }
+        if (target.deck.length != deck.length || target.roundsToWin != roundsToWin) {
+            throw new IllegalArgumentException("The states are for games of different rules");
+        }
+        target.table = table;
+        System.arraycopy(deck, 0, target.deck, 0, deck.length);
+        target.nextToDraw = nextToDraw;
+        target.cardsGone = cardsGone;
+        target.random.setSeed(random.getState());
+        System.arraycopy(hands, 0, target.hands, 0, hands.length);
+        target.masks[1] = masks[1];
+        target.masks[2] = masks[2];
+        target.wins[1] = wins[1];
+        target.wins[2] = wins[2];
+        target.topCode = topCode;
+        target.pileSize = pileSize;
+        target.turn = turn;
+        target.round = round;
+        target.clearHistory();
+    }
+
+    /**
+     * Gets a bit mask of the cards the player to move can play.
+     * @return mask with the bit of every playable card code set.
+     */
+    public long playableMask() {
+        return masks[turn] & table.playableOn(topCode);
+    }
+
+    /**
+     * Determines if the player to move can't play any card and so loses the round.
+     * @return true if the player to move is stuck.
+     */
+    public boolean isStuck() {
+        return playableMask() == 0;
+    }
+
+    /**
+     * Plays a card of the player to move, who draws a card to replace it. The turn passes to the
+     * other player. Any moves taken back before can no longer be redone.
+     * @param code code of the card to play.
+     * @throws IllegalArgumentException if the player to move can't play that card.
+     */
+    public void play(int code) {
+        if (code < 0 || code >= Card.NUM_CODES || (playableMask() >>> code & 1) == 0) {
+            throw new IllegalArgumentException("Player " + turn + " can't play card code " + code);
+        }
+        historySize = applied;
+        apply(code);
+    }
+
+    /**
+     * Ends the round lost by the stuck player to move: the other player scores, draws the first
+     * card of the next round and starts it. Any moves taken back before can no longer be redone.
+     * @throws IllegalStateException if the player to move isn't stuck.
+     */
+    public void endRound() {
+        if (!isStuck()) {
+            throw new IllegalStateException("Player " + turn + " can still play");
+        }
+        historySize = applied;
+        apply(END_ROUND);
+    }
+
+    /**
+     * Takes back the last move applied.
+     * @return true if a move was taken back, false if there was none.
+     */
+    public boolean undo() {
+        if (applied == 0) {
+            return false;
+        }
+        applied--;
+        long packed = history[applied];
+        int move = (int) (packed & 0xff);
+        int slot = (int) (packed >>> 8 & 0xff);
+        int previousNext = (int) (packed >>> 16 & 0xffff);
+        int previousGone = (int) (packed >>> 32 & 0xffff);
+        int previousTop = (int) (packed >>> 48 & 0xff);
+        int previousTurn = (int) (packed >>> 56 & 0xff);
+
+        // A draw that reshuffled the deck is taken back by undoing the same swaps in reverse
+        long previousRandom = historyRandom[applied];
+        if (previousGone == deck.length) {
+            random.setSeed(previousRandom);
+            for (int i = 0; i < deck.length; i++) {
+                swaps[i] = random.nextInt(deck.length - i) + i;
+            }
+            for (int i = deck.length - 1; i >= 0; i--) {
+                swap(i, swaps[i]);
+            }
+        }
+        random.setSeed(previousRandom);
+        nextToDraw = previousNext;
+        cardsGone = previousGone;
+
+        if (move == END_ROUND) {
+            wins[3 - previousTurn]--;
+            round--;
+        } else {
+            hands[(previousTurn - 1) * handSize + slot] = (byte) move;
+            updateMask(previousTurn);
+        }
+        topCode = previousTop;
+        pileSize = historyPileSize[applied];
+        turn = previousTurn;
+        return true;
+    }
+
+    /**
+     * Applies again the last move taken back.
+     * @return true if a move was applied again, false if there was none.
+     */
+    public boolean redo() {
+        if (applied == historySize) {
+            return false;
+        }
+        apply((int) (history[applied] & 0xff));
+        return true;
+    }
+
+    /**
+     * Applies a move and records how to take it back.
+     * @param move card code to play, or END_ROUND.
+     */
+    private void apply(int move) {
+        if (applied == history.length) {
+            history = Arrays.copyOf(history, 2 * applied);
+            historyRandom = Arrays.copyOf(historyRandom, 2 * applied);
+            historyPileSize = Arrays.copyOf(historyPileSize, 2 * applied);
+        }
+        historyRandom[applied] = random.getState();
+        historyPileSize[applied] = pileSize;
+        int slot = 0;
+        long before = (long) nextToDraw << 16 | (long) cardsGone << 32 | (long) topCode << 48 | (long) turn << 56;
+
+        if (move == END_ROUND) {
+            // The other player wins the round and starts the next one
+            turn = 3 - turn;
+            wins[turn]++;
+            round++;
+            topCode = drawCode();
+            pileSize = 1;
+        } else {
+            // Replace the first copy of the card in hand, like Hand.remove does
+            int offset = (turn - 1) * handSize;
+            while (hands[offset + slot] != move) {
+                slot++;
+            }
+            hands[offset + slot] = (byte) drawCode();
+            updateMask(turn);
+            topCode = move;
+            pileSize++;
+            turn = 3 - turn;
+        }
+        history[applied++] = before | move | slot << 8;
+        if (historySize < applied) {
+            historySize = applied;
+        }
+    }
+
+    /**
+     * Draws the next card from the deck, exactly like Deck.drawCode.
+     * @return code of the card drawn.
+     */
+    private int drawCode() {
+        if (cardsGone == deck.length) {
+            shuffle();
+            nextToDraw = 0;
+            cardsGone = 1;
+        } else {
+            nextToDraw = nextToDraw == deck.length - 1 ? 0 : nextToDraw + 1;
+            cardsGone++;
+        }
+        return deck[nextToDraw];
+    }
+
+    /**
+     * Shuffles the deck exactly like Deck.shuffle.
+     */
+    private void shuffle() {
+        for (int i = 0; i < deck.length; i++) {
+            swap(i, random.nextInt(deck.length - i) + i);
+        }
+    }
+
+    /**
+     * Swaps two cards of the deck.
+     * @param i index of one card.
+     * @param j index of the other card.
+     */
+    private void swap(int i, int j) {
+        byte temp = deck[i];
+        deck[i] = deck[j];
+        deck[j] = temp;
+    }
+
+    /**
+     * Rebuilds the mask of a player's hand from its slots.
+     * @param player 1 or 2.
+     */
+    private void updateMask(int player) {
+        long mask = 0;
+        int offset = (player - 1) * handSize;
+        for (int i = 0; i < handSize; i++) {
+            mask |= 1L << hands[offset + i];
+        }
+        masks[player] = mask;
+    }
+
+    /**
+     * Forgets every move, so none can be taken back or redone.
+     */
+    private void clearHistory() {
+        historySize = 0;
+        applied = 0;
+    }
+
+    /**
+     * Gets the number of cards in each hand.
+     * @return hand size.
+     */
+    public int getHandSize() {
+        return handSize;
+    }
+
+    /**
+     * Gets the code of a card in a player's hand.
+     * @param player 1 or 2.
+     * @param i index of the card in the hand.
+     * @return code of the card.
+     */
+    public int getCode(int player, int i) {
+        return hands[(player - 1) * handSize + i];
+    }
+
+    /**
+     * Gets a bit mask of the card codes in a player's hand.
+     * @param player 1 or 2.
+     * @return mask with the bit of every card code in the hand set.
+     */
+    public long getHandMask(int player) {
+        return masks[player];
+    }
+
+    /**
+     * Gets the number of rounds a player has won.
+     * @param player 1 or 2.
+     * @return rounds won.
+     */
+    public int getNumWins(int player) {
+        return wins[player];
+    }
+
+    /**
+     * Determines if a player has won the rounds needed to win the game, 10 in the standard rules.
+     * @return true if the game is over.
+     */
+    public boolean isGameOver() {
+        return wins[1] >= roundsToWin || wins[2] >= roundsToWin;
+    }
+
+    /**
+     * Gets the player whose turn it is.
+     * @return 1 or 2.
+     */
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Gets the number of the round being played.
+     * @return round number, starting from 1.
+     */
+    public int getRound() {
+        return round;
+    }
+
+    /**
+     * Gets the code of the top card of the pile.
+     * @return code of the top card.
+     */
+    public int getTopCode() {
+        return topCode;
+    }
+
+    /**
+     * Gets the number of cards on the pile.
+     * @return size of the pile.
+     */
+    public int getPileSize() {
+        return pileSize;
+    }
+
+    /**
+     * Gets the number of cards left in the deck before it is reshuffled.
+     * @return number of cards left.
+     */
+    public int cardsRemaining() {
+        return deck.length - cardsGone;
+    }
+
+    /**
+     * Gets the number of moves that can be taken back.
+     * @return number of moves applied since the state was dealt, captured or copied.
+     */
+    public int getMovesApplied() {
+        return applied;
+    }
+}
@@ -0,0 +1,162 @@
+package student;
+import java.util.Random;
+
+/**
+ * Checks GameState against UnoWarMatch, and that undo and redo take the state back exactly.
+ */
+public class GameStateTest {
+
+    /**
+     * Picks the smallest or the biggest playable card, like SmallestCardAI and BiggestCardAI.
+     * @param state state with a player to move who isn't stuck.
+     * @param biggest whether to pick the biggest card.
+     * @return code of the card picked.
+     */
+    private static int pick(GameState state, boolean biggest) {
+        long playable = state.playableMask();
+        return biggest ? 63 - Long.numberOfLeadingZeros(playable) : Long.numberOfTrailingZeros(playable);
+    }
+
+    /**
+     * Plays a state to the end of its game, hashing every position on the way.
+     * @param state state to finish.
+     * @param biggest1 whether player 1 plays its biggest cards.
+     * @param biggest2 whether player 2 plays its biggest cards.
+     * @return hash of the positions and the final score.
+     */
+    private static long finish(GameState state, boolean biggest1, boolean biggest2) {
+        long hash = 17;
+        while (!state.isGameOver()) {
+            if (state.isStuck()) {
+                state.endRound();
+            } else {
+                state.play(pick(state, state.getTurn() == 1 ? biggest1 : biggest2));
+            }
+            hash = hash * 31 + state.getTopCode() * 7 + state.getHandMask(1) * 3 + state.getHandMask(2)
+                    + state.getPileSize() + state.cardsRemaining();
+        }
+        return hash * 3 + state.getNumWins(1);
+    }
+
+    public static void main(String[] args) {
+        AI[] ais = {new SmallestCardAI(), new BiggestCardAI()};
+
+        // Every round must end the same way as in the match
+        // loop should print nothing!
+        for (int x = 0; x < 2; x++) {
+            for (int y = 0; y < 2; y++) {
+                UnoWarMatch match = new UnoWarMatch(ais[x], ais[y], 77);
+                GameState state = new GameState();
+                for (int g = 0; g < 1000; g++) {
+                    match.deal(g);
+                    state.deal(77, g);
+                    while (!match.isGameOver()) {
+                        match.playRound();
+                        while (!state.isStuck()) {
+                            state.play(pick(state, state.getTurn() == 1 ? x == 1 : y == 1));
+                        }
+                        int winner = 3 - state.getTurn();
+                        if (winner != match.getWinner()
+                                || state.getHandMask(1) != match.getHand1().getMask()
+                                || state.getHandMask(2) != match.getHand2().getMask()
+                                || state.getTopCode() != match.getCardPile().getTopCode()
+                                || state.getPileSize() != match.getCardPile().getNumCards()
+                                || state.cardsRemaining() != match.getDeck().cardsRemaining()) {
+                            System.out.println(ais[x] + " vs. " + ais[y] + ", game " + g + ": round "
+                                    + state.getRound() + " differs");
+                        }
+                        state.endRound();
+                        if (state.getNumWins(1) != match.getNumWins1() || state.getNumWins(2) != match.getNumWins2()
+                                || state.isGameOver() != match.isGameOver()) {
+                            System.out.println(ais[x] + " vs. " + ais[y] + ", game " + g + ": scores differ");
+                        }
+                    }
+                }
+            }
+        }
+
+        // Random moves, undos and redos, then undoing back to the start, must give the state back
+        // loop should print nothing!
+        Random random = new Random(1);
+        GameState state = new GameState();
+        GameState copy = new GameState();
+        for (int g = 0; g < 2000; g++) {
+            state.deal(5, g);
+            for (int k = random.nextInt(200); k > 0 && !state.isGameOver(); k--) {
+                if (state.isStuck()) {
+                    state.endRound();
+                } else {
+                    state.play(pick(state, random.nextBoolean()));
+                }
+            }
+            state.copyInto(copy);
+            int base = state.getMovesApplied();
+            int steps = 0;
+            for (int k = random.nextInt(400); k > 0; k--) {
+                int op = random.nextInt(4);
+                if (op == 0 && state.getMovesApplied() > base) {
+                    state.undo();
+                    steps--;
+                } else if (op == 1) {
+                    if (state.redo()) {
+                        steps++;
+                    }
+                } else if (!state.isGameOver()) {
+                    if (state.isStuck()) {
+                        state.endRound();
+                    } else {
+                        state.play(pick(state, random.nextBoolean()));
+                    }
+                    steps++;
+                }
+            }
+            if (steps != state.getMovesApplied() - base) {
+                System.out.println("Game " + g + ": " + steps + " moves applied, but the state counts "
+                        + (state.getMovesApplied() - base));
+            }
+            while (state.getMovesApplied() > base) {
+                state.undo();
+            }
+            if (finish(state, false, true) != finish(copy, false, true)) {
+                System.out.println("Game " + g + ": undoing didn't give the state back");
+            }
+        }
+
+        // A state captured in the middle of a game must finish it like the match does
+        // loop should print nothing!
+        UnoWarMatch match = new UnoWarMatch(ais[0], ais[1], 3);
+        for (int g = 0; g < 500; g++) {
+            match.deal(g);
+            match.playRound();
+            match.playRound();
+            state.capture(match);
+            finish(state, false, true);
+            while (!match.isGameOver()) {
+                match.playRound();
+            }
+            if (state.getNumWins(1) != match.getNumWins1() || state.getNumWins(2) != match.getNumWins2()) {
+                System.out.println("Game " + g + ": captured state has another score");
+            }
+        }
+
+        state.deal(5, 0);
+        System.out.println(state.undo());                               // should print false
+        System.out.println(state.redo());                               // should print false
+        state.play(pick(state, false));
+        System.out.println(state.undo() + " " + state.getMovesApplied()); // should print true 0
+        System.out.println(state.redo() + " " + state.getMovesApplied()); // should print true 1
+        try {
+            state.play(-1);                                             // should print Player 2 can't play card code -1
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
+// Expected prints:
+/*
+false
+false
+true 0
+true 1
+Player 2 can't play card code -1
+ */
@@ -1,83 +1,247 @@
-package student;
-
-/**
- * The Hand class represents a collection of cards drawn from a deck.
- * It allows cards to be drawn into the hand, accessed by index, and removed,
- * replacing any removed cards with new ones from the deck.
- */
-public class Hand {
-
-    /**
-     * The deck from which cards are drawn to populate the hand.
-     */
-    private final Deck deck;
-
-    /**
-     * Size of the hand.
-     */
-    private final int size;
-
-    /**
-     * An array holding the cards in the hand.
-     */
-    private final Card[] hand;
-
-    /**
-     * Constructs a hand of cards by drawing the specified number of cards from the given deck.
-     * @param deck where cards draw from
-     * @param size number of cards to draw for the hand
-     */
-    public Hand(Deck deck, int size) {
-        this.deck = deck;
-        this.size = size;
-        this.hand = new Card[size];
-        // Draw cards from the deck to fill the hand
-        for (int i = 0; i < size; i++) {
-            hand[i] = deck.draw();
-        }
-    }
-
-    /**
-     * Gets size of hand.
-     * @return size of hand.
-     */
-    public int getSize() {
-        return size;
-    }
-
-    /**
-     * Gets card of index i in hand.
-     * @param i is index of card in hand array.
-     * @return Card with index i in array.
-     */
-    public Card get(int i) {
-        if (i < 0 || i > size) {
-            System.out.println("Invalid hand index!");
-            return hand[0];
-        }
-        return hand[i];
-    }
-
-    /**
-     * Removes a card from hand and replaces it with new card from the deck.
-     * @param card to be removed.
-     * @return true if card is able to be removed, false if not
-     */
-    public boolean remove(Card card) {
-        // Find the index of the card to remove
-        int indexToRemove = -1;
-        for (int i = 0; i < size; i++) {
-            if (hand[i].equals(card)) {
-                indexToRemove = i;
-                break;
-            }
-        }
-        // If the card was not found, return false
-        if (indexToRemove == -1) {
-            return false;
-        }
-        // Replace the removed card with a new one from the deck
-        hand[indexToRemove] = deck.draw();
-        return true;
-    }
-}
+package student;
+
+/**
+ * The Hand class represents a collection of cards drawn from a deck.
+ * It allows cards to be drawn into the hand, accessed by index, and removed,
+ * replacing any removed cards with new ones from the deck.
+ * Besides the cards in hand order, the hand keeps a bit mask with one bit per card code it holds,
+ * so questions like "which cards can be played?" take a few bit operations instead of a scan.
+ * A reshuffled deck can deal a card the hand already holds, so the hand also counts copies.
+ * A hand can be reset to draw a new hand from its deck, so a match can keep its hands from game to game.
+ */
+public class Hand {
+
+    /**
+     * The deck from which cards are drawn to populate the hand.
+     */
+    private final Deck deck;
+
+    /**
+     * Size of the hand.
+     */
+    private final int size;
+
+    /**
+     * An array holding the codes of the cards in the hand.
+     */
+    private final byte[] hand;
+
+    /**
+     * Bit mask of the codes of the cards in the hand.
+     */
+    private long mask;
+
+    /**
+     * Number of copies of each card code in the hand.
+     */
+    private final byte[] counts;
+
+    /**
+     * Code of the card most recently drawn into the hand.
+     */
+    private int lastDrawn;
+
+    /**
+     * Constructs a hand of cards by drawing the specified number of cards from the given deck.
+     * @param deck where cards draw from
+     * @param size number of cards to draw for the hand
+     */
+    public Hand(Deck deck, int size) {
+        this.deck = deck;
+        this.size = size;
+        this.hand = new byte[size];
+        this.counts = new byte[Card.NUM_CODES];
+        // Draw cards from the deck to fill the hand
+        for (int i = 0; i < size; i++) {
+            hand[i] = (byte) deck.drawCode();
+            addToMask(hand[i]);
+        }
+    }
+
+    /**
+     * Throws the cards of the hand away and draws a new hand from the deck, exactly like a new
+     * hand drawn from the same deck would, without creating anything.
+     */
+    public void reset() {
+        // Only the cards in the hand can have a count
+        for (int i = 0; i < size; i++) {
+            counts[hand[i]] = 0;
+        }
+        mask = 0;
+        lastDrawn = 0;
+        for (int i = 0; i < size; i++) {
+            hand[i] = (byte) deck.drawCode();
+            addToMask(hand[i]);
+        }
+    }
+
+    /**
+     * Gets size of hand.
+     * @return size of hand.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the deck the hand draws its replacement cards from.
+     * @return the deck of the hand.
+     */
+    Deck getDeck() {
+        return deck;
+    }
+
+    /**
+     * Gets card of index i in hand.
+     * @param i is index of card in hand array.
+     * @return Card with index i in array.
+     */
+    public Card get(int i) {
+        return Card.fromCode(getCode(i));
+    }
+
+    /**
+     * Gets the code of the card of index i in hand.
+     * @param i is index of card in hand array.
+     * @return code of the card with index i in array.
+     */
+    int getCode(int i) {
+        if (i < 0 || i >= size) {
+            System.out.println("Invalid hand index!");
+            return hand[0];
+        }
+        return hand[i];
+    }
+
+    /**
+     * Removes a card from hand and replaces it with new card from the deck.
+     * @param card to be removed.
+     * @return true if card is able to be removed, false if not
+     */
+    public boolean remove(Card card) {
+        // A missing card can never be in the hand
+        if (card == null) {
+            return false;
+        }
+        return removeCode(card.getCode());
+    }
+
+    /**
+     * Removes the card with the given code from hand and replaces it with new card from the deck.
+     * @param code of the card to be removed.
+     * @return true if card is able to be removed, false if not
+     */
+    boolean removeCode(int code) {
+        // Find the index of the card to remove
+        int indexToRemove = -1;
+        for (int i = 0; i < size; i++) {
+            if (hand[i] == code) {
+                indexToRemove = i;
+                break;
+            }
+        }
+        // If the card was not found, return false
+        if (indexToRemove == -1) {
+            return false;
+        }
+        // Replace the removed card with a new one from the deck
+        removeFromMask(code);
+        hand[indexToRemove] = (byte) deck.drawCode();
+        lastDrawn = hand[indexToRemove];
+        addToMask(hand[indexToRemove]);
+        return true;
+    }
+
+    /**
+     * Gets the code of the card most recently drawn to replace a removed card.
+     * @return code of the last replacement card.
+     */
+    int getLastDrawnCode() {
+        return lastDrawn;
+    }
+
+    /**
+     * Gets a bit mask of the codes of the cards in the hand.
+     * @return mask with the bit of every card code in the hand set.
+     */
+    public long getMask() {
+        return mask;
+    }
+
+    /**
+     * Gets a bit mask of the codes of the cards in the hand that can be played on the pile.
+     * @param cardPile pile the cards would be played on.
+     * @return mask with the bit of every playable card code set.
+     */
+    public long playableMask(CardPile cardPile) {
+        return mask & cardPile.getPlayableMask();
+    }
+
+    /**
+     * Determines if any card in the hand can be played on the pile.
+     * @param cardPile pile the cards would be played on.
+     * @return true if at least one card can be played.
+     */
+    public boolean hasPlayable(CardPile cardPile) {
+        return playableMask(cardPile) != 0;
+    }
+
+    /**
+     * Finds the first card, in hand order, that can be played on the pile.
+     * @param cardPile pile the card would be played on.
+     * @return first playable card, or null if none can be played.
+     */
+    public Card firstPlayable(CardPile cardPile) {
+        long playable = playableMask(cardPile);
+        if (playable != 0) {
+            for (int i = 0; i < size; i++) {
+                if ((playable >>> hand[i] & 1) != 0) {
+                    return Card.fromCode(hand[i]);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the smallest-ranked card in the hand that can be played on the pile.
+     * Among cards of the same rank, the lowest suit number is chosen.
+     * @param cardPile pile the card would be played on.
+     * @return smallest playable card, or null if none can be played.
+     */
+    public Card smallestPlayable(CardPile cardPile) {
+        long playable = playableMask(cardPile);
+        return playable == 0 ? null : Card.fromCode(Long.numberOfTrailingZeros(playable));
+    }
+
+    /**
+     * Finds the biggest-ranked card in the hand that can be played on the pile.
+     * Among cards of the same rank, the highest suit number is chosen.
+     * @param cardPile pile the card would be played on.
+     * @return biggest playable card, or null if none can be played.
+     */
+    public Card largestPlayable(CardPile cardPile) {
+        long playable = playableMask(cardPile);
+        return playable == 0 ? null : Card.fromCode(63 - Long.numberOfLeadingZeros(playable));
+    }
+
+    /**
+     * Counts one more copy of a card in the hand and sets its bit.
+     * @param code of the card added to the hand.
+     */
+    private void addToMask(int code) {
+        counts[code]++;
+        mask |= 1L << code;
+    }
+
+    /**
+     * Counts one less copy of a card in the hand and clears its bit when none are left.
+     * @param code of the card removed from the hand.
+     */
+    private void removeFromMask(int code) {
+        counts[code]--;
+        if (counts[code] == 0) {
+            mask &= ~(1L << code);
+        }
+    }
+}
@@ -43,6 +43,35 @@ public class HandTest {
         System.out.println(c1.equals(hand.get(0)));      // should print false
         System.out.println(c2.equals(hand.get(0)));      // should print false
         System.out.println(hand.get(0));                 // sohuld print a random card different than before.
+
+        // the bit mask queries should agree with checking every card, so this loop should print nothing!
+        Hand big = new Hand(deck, 12);
+        for (int i = 0; i < 2000; i++) {
+            CardPile pile = new CardPile(deck.draw());
+            Card first = null;
+            Card smallest = null;
+            Card biggest = null;
+            for (int k = 0; k < big.getSize(); k++) {
+                Card card = big.get(k);
+                if (pile.canPlay(card)) {
+                    if (first == null) {
+                        first = card;
+                    }
+                    if (smallest == null || card.getCode() < smallest.getCode()) {
+                        smallest = card;
+                    }
+                    if (biggest == null || card.getCode() > biggest.getCode()) {
+                        biggest = card;
+                    }
+                }
+            }
+            if (big.firstPlayable(pile) != first || big.smallestPlayable(pile) != smallest
+                    || big.largestPlayable(pile) != biggest || big.hasPlayable(pile) != (first != null)) {
+                System.out.println("Mask query mismatch!");
+            }
+            // keep replacing cards, so reshuffled decks also deal cards the hand already holds
+            big.remove(big.get(i % big.getSize()));
+        }
     }
 }
 // expected output:
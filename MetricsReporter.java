@@ -0,0 +1,85 @@
+package student;
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints the metrics of a running simulation every few seconds, on its own daemon thread.
+ * Each report shows the games per second since the previous report, so slowdowns show up while
+ * the run is still going. Closing the reporter stops it and prints one last report.
+ */
+public class MetricsReporter implements Closeable {
+
+    /**
+     * Metrics being reported.
+     */
+    private final SimulationMetrics metrics;
+
+    /**
+     * Stream the reports are printed to.
+     */
+    private final PrintStream out;
+
+    /**
+     * Thread that prints the reports.
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Number of games at the previous report.
+     */
+    private long lastGames;
+
+    /**
+     * Time of the previous report, in nanoseconds since the metrics were created.
+     */
+    private long lastNanos;
+
+    /**
+     * Starts printing reports.
+     * @param metrics metrics to report.
+     * @param out stream to print the reports to, such as System.err.
+     * @param periodSeconds seconds between two reports, at least 1.
+     */
+    public MetricsReporter(SimulationMetrics metrics, PrintStream out, long periodSeconds) {
+        if (periodSeconds < 1) {
+            throw new IllegalArgumentException("periodSeconds must be at least 1: " + periodSeconds);
+        }
+        this.metrics = metrics;
+        this.out = out;
+        this.timer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(this::report, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Prints one report of the metrics.
+     */
+    public synchronized void report() {
+        long games = metrics.getGames();
+        long nanos = metrics.getElapsedNanos();
+        double gamesPerSecond = (games - lastGames) / ((nanos - lastNanos) / 1e9);
+        lastGames = games;
+        lastNanos = nanos;
+        out.printf("[%.1f s] %d games, %.0f games/s, %.1f rounds/game, %.2f plays/round, %d reshuffles, %.0f B/game%n",
+                nanos / 1e9, games, gamesPerSecond, metrics.getRoundsPerGame(), metrics.getPlaysPerRound(),
+                metrics.getReshuffles(), metrics.getAllocatedBytesPerGame());
+        for (String line : metrics.getPlayLatencies()) {
+            out.println("  getPlay " + line);
+        }
+    }
+
+    /**
+     * Stops the reports and prints a last one.
+     */
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        report();
+    }
+}
@@ -0,0 +1,507 @@
+package student;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The MonteCarloAI class represents an AI that chooses its card by sampling.
+ * It doesn't know the opponent's hand or the order of the deck, so for every sample it deals the
+ * cards it hasn't seen yet at random into an opponent hand and a deck order (a "determinization").
+ * The cards are those of the deck its hand is dealt from, so variants with fewer ranks or several
+ * decks are sampled right: every copy of a card counts, and a card stays unseen until all its
+ * copies were seen.
+ * It then plays every card it could play and rolls the rest of the round out with the smallest
+ * card policy for both players. Winning the round isn't everything, since the hands carry over to
+ * the next round, so the AI plays its smallest card (the strong default) unless another card wins
+ * clearly more rollouts, by at least the switch margin.
+ * All candidates are rolled out on the same samples, so their scores are compared fairly.
+ * The samples can be split between several rollout workers that run in parallel. Each worker owns
+ * its own arrays and random number generator, which are reused from move to move, so rollouts
+ * allocate nothing. Each instance keeps state, so every match and thread needs its own copy.
+ * The samples of a move only depend on the seed and on what the AI sees in the game (its hand,
+ * the pile, the deck and how many moves it made in the game), never on the games it played before.
+ * So a game is played the same way in any match, chunk or replay, unless the AI is given a time
+ * budget, which makes the number of samples depend on how fast the machine is.
+ */
+public class MonteCarloAI extends AI {
+
+    /**
+     * Time budget meaning every move takes all its samples.
+     */
+    public static final long NO_TIME_LIMIT = 0;
+
+    /**
+     * Rollout score of a won round. A round still going when the sampled deck runs out scores 1.
+     */
+    private static final int WIN_SCORE = 2;
+
+    /**
+     * Largest number of samples per move.
+     */
+    private final int maxSamples;
+
+    /**
+     * Time the sampling may take for one move, in nanoseconds, or NO_TIME_LIMIT.
+     */
+    private final long timeBudgetNanos;
+
+    /**
+     * Fraction of rollouts by which a card must beat the smallest card to be played instead.
+     */
+    private final double switchMargin;
+
+    /**
+     * Seed of the AI, from which the seed of every worker for every move is derived.
+     */
+    private final long seed;
+
+    /**
+     * Workers the samples are split between.
+     */
+    private final Rollout[] workers;
+
+    /**
+     * Hand of the opponent in the current game, only used for its size.
+     */
+    private Hand opponentHand;
+
+    /**
+     * Rules of the deck the current game is dealt from, or null before the first move.
+     */
+    private RuleSet rules;
+
+    /**
+     * Number of copies of each card in the deck of the rules.
+     */
+    private final byte[] deckCounts = new byte[Card.NUM_CODES];
+
+    /**
+     * Number of copies of each card seen on the pile since the game started or the deck was last
+     * thought reshuffled. Cards in this AI's hand are counted apart, in handCounts.
+     */
+    private final byte[] goneCounts = new byte[Card.NUM_CODES];
+
+    /**
+     * Number of moves chosen so far in the current game, used to give every move fresh samples.
+     */
+    private long moves;
+
+    /**
+     * Codes of the cards not seen yet, one entry per copy, which are the cards the samples are dealt from.
+     */
+    private int[] pool = new int[Card.NUM_CODES];
+
+    /**
+     * Number of codes in pool.
+     */
+    private int poolSize;
+
+    /**
+     * This AI's hand in the current move.
+     */
+    private long handMask;
+
+    /**
+     * Number of copies of each card in this AI's hand in the current move, since a reshuffle or
+     * several decks can give it the same card twice.
+     */
+    private final byte[] handCounts = new byte[Card.NUM_CODES];
+
+    /**
+     * Mask of the cards this AI can play in the current move.
+     */
+    private long candidates;
+
+    /**
+     * Number of cards in the opponent's hand.
+     */
+    private int opponentSize;
+
+    /**
+     * Table of which cards can be played on which top card.
+     */
+    private PlayTable table;
+
+    /**
+     * Time at which the current move's sampling must stop, in System.nanoTime() units.
+     */
+    private long deadline;
+
+    /**
+     * Creates an AI taking 200 samples per move without a time limit, on one thread, that only
+     * leaves the smallest card for one winning 15% more rollouts.
+     */
+    public MonteCarloAI() {
+        this(200, NO_TIME_LIMIT, 0.15, 1, 0);
+    }
+
+    /**
+     * Creates a Monte Carlo AI.
+     * @param maxSamples largest number of samples per move, at least 1.
+     * @param timeBudgetNanos time the sampling may take for one move, in nanoseconds; NO_TIME_LIMIT
+     *                        or Long.MAX_VALUE for no limit.
+     * @param switchMargin fraction of rollouts by which a card must beat the smallest card, 0 to always
+     *                     play the card winning the most rollouts.
+     * @param threads number of rollout workers run in parallel, at least 1.
+     * @param seed seed of the AI. Its choices only repeat exactly when there is no time budget, or
+     *             it isn't reached.
+     */
+    public MonteCarloAI(int maxSamples, long timeBudgetNanos, double switchMargin, int threads, long seed) {
+        if (maxSamples < 1 || threads < 1) {
+            throw new IllegalArgumentException("maxSamples and threads must be at least 1");
+        }
+        if (timeBudgetNanos < 0) {
+            throw new IllegalArgumentException("timeBudgetNanos can't be negative: " + timeBudgetNanos);
+        }
+        this.maxSamples = maxSamples;
+        this.timeBudgetNanos = timeBudgetNanos == Long.MAX_VALUE ? NO_TIME_LIMIT : timeBudgetNanos;
+        this.switchMargin = switchMargin;
+        this.seed = seed;
+        this.workers = new Rollout[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Rollout();
+        }
+    }
+
+    /**
+     * Starts tracking the cards seen in a new game.
+     * @param hand the hand this AI plays from during the game.
+     * @param opponentHand the hand of the other player.
+     */
+    @Override
+    public void startGame(Hand hand, Hand opponentHand) {
+        this.opponentHand = opponentHand;
+        Arrays.fill(goneCounts, (byte) 0);
+        this.moves = 0;
+    }
+
+    /**
+     * Gets card from hand that AI chose to be played. In this AI, the choice is the card that
+     * won the most sampled rollouts of the round.
+     * @param hand of cards AI has to choose from.
+     * @param cardPile object used to make decision.
+     * @return AI's choice of card from hand to play, null if no possible card to play
+     */
+    @Override
+    public Card getPlay(Hand hand, CardPile cardPile) {
+        RuleSet deckRules = hand.getDeck().getRules();
+        if (deckRules != rules) {
+            useRules(deckRules);
+        }
+        candidates = hand.playableMask(cardPile);
+        handMask = hand.getMask();
+        opponentSize = opponentHand == null ? hand.getSize() : opponentHand.getSize();
+        Arrays.fill(handCounts, (byte) 0);
+        for (int i = 0; i < hand.getSize(); i++) {
+            handCounts[hand.getCode(i)]++;
+        }
+
+        // Every card in hand or on the pile has been seen, even on a forced move; the rest could be anywhere
+        int top = cardPile.getTopCode();
+        see(top);
+        // Too few cards left for the opponent's hand means the deck was reshuffled
+        if (countUnseen() < opponentSize + hand.getSize()) {
+            Arrays.fill(goneCounts, (byte) 0);
+            goneCounts[top] = 1;
+        }
+        if (Long.bitCount(candidates) <= 1) {
+            if (candidates == 0) {
+                return null;
+            }
+            return played(Long.numberOfTrailingZeros(candidates));
+        }
+        table = cardPile.getTable();
+        poolSize = 0;
+        for (int code = 0; code < Card.NUM_CODES; code++) {
+            for (int copy = deckCounts[code] - goneCounts[code] - handCounts[code]; copy > 0; copy--) {
+                pool[poolSize++] = code;
+            }
+        }
+
+        // The move's seed mixes in the position, so every game gets its own samples however many
+        // games this instance played before it
+        long moveSeed = SplitMixRandom.seedFor(seed, moves++);
+        moveSeed = SplitMixRandom.seedFor(moveSeed, cardPile.getTopCode() | (long) cardPile.getNumCards() << 8
+                | (long) hand.getDeck().cardsRemaining() << 32);
+        for (int i = 0; i < hand.getSize(); i++) {
+            moveSeed = SplitMixRandom.seedFor(moveSeed, hand.getCode(i));
+        }
+
+        // Split the samples between the workers and run them
+        deadline = System.nanoTime() + timeBudgetNanos;
+        for (int i = 0; i < workers.length; i++) {
+            int samples = maxSamples / workers.length + (i < maxSamples % workers.length ? 1 : 0);
+            workers[i].prepare(samples, SplitMixRandom.seedFor(moveSeed, i));
+        }
+        if (workers.length == 1) {
+            workers[0].invoke();
+        } else {
+            ForkJoinTask.invokeAll(workers);
+        }
+
+        // Start from the smallest card and only switch for a card that is clearly better
+        long taken = 0;
+        for (Rollout worker : workers) {
+            taken += worker.taken;
+        }
+        double margin = switchMargin * WIN_SCORE * taken;
+        int best = -1;
+        long bestScore = -1;
+        for (long rest = candidates; rest != 0; rest &= rest - 1) {
+            int code = Long.numberOfTrailingZeros(rest);
+            long score = 0;
+            for (Rollout worker : workers) {
+                score += worker.scores[code];
+            }
+            if (best < 0 || score > bestScore + margin) {
+                bestScore = score;
+                best = code;
+            }
+        }
+        return played(best);
+    }
+
+    /**
+     * Counts the cards of a new deck and makes room for sampling all of them.
+     * @param deckRules rules of the deck.
+     */
+    private void useRules(RuleSet deckRules) {
+        rules = deckRules;
+        byte[] codes = new byte[deckRules.getDeckSize()];
+        deckRules.copyDeck(codes, 0);
+        Arrays.fill(deckCounts, (byte) 0);
+        for (byte code : codes) {
+            deckCounts[code]++;
+        }
+        Arrays.fill(goneCounts, (byte) 0);
+        if (pool.length < codes.length) {
+            pool = new int[codes.length];
+        }
+    }
+
+    /**
+     * Counts the copies of cards that are neither in this AI's hand nor seen on the pile.
+     * @return number of unseen cards.
+     */
+    private int countUnseen() {
+        int unseen = 0;
+        for (int code = 0; code < Card.NUM_CODES; code++) {
+            unseen += Math.max(0, deckCounts[code] - goneCounts[code] - handCounts[code]);
+        }
+        return unseen;
+    }
+
+    /**
+     * Remembers that a card of this AI's hand goes to the pile.
+     * @param code code of the card played.
+     * @return the card.
+     */
+    private Card played(int code) {
+        see(code);
+        return Card.fromCode(code);
+    }
+
+    /**
+     * Counts a copy of a card as seen on the pile. More copies than the deck holds can only mean
+     * a reshuffle was missed, so the count stops there.
+     * @param code code of the card.
+     */
+    private void see(int code) {
+        if (goneCounts[code] < deckCounts[code]) {
+            goneCounts[code]++;
+        }
+    }
+
+    /**
+     * Gets a new AI with the same settings, since this AI keeps state.
+     * @return a new MonteCarloAI.
+     */
+    @Override
+    public AI copy() {
+        return new MonteCarloAI(maxSamples, timeBudgetNanos, switchMargin, workers.length, seed);
+    }
+
+    /**
+     * Determines if the AI always makes the same plays in the same game. The samples of every
+     * move are drawn from the seed, so only a time budget cutting them short can change a play.
+     * @return true if there is no time budget.
+     */
+    @Override
+    public boolean isDeterministic() {
+        return timeBudgetNanos == NO_TIME_LIMIT;
+    }
+
+    /**
+     * Name of AI with every setting it was created with.
+     * @return "Monte Carlo AI" followed by the settings, such as
+     *         "Monte Carlo AI (samples 200, margin 0.15, threads 1, seed 0)".
+     */
+    @Override
+    public String toString() {
+        String budget = timeBudgetNanos == NO_TIME_LIMIT ? "" : ", budget " + timeBudgetNanos + " ns";
+        return "Monte Carlo AI (samples " + maxSamples + budget + ", margin " + switchMargin
+                + ", threads " + workers.length + ", seed " + seed + ")";
+    }
+
+    /**
+     * A rollout worker with its own sampling arrays and random number generator.
+     * It is reinitialized and reused for every move.
+     */
+    private final class Rollout extends RecursiveAction {
+
+        /**
+         * Version of the serialized form, required of a RecursiveAction although workers stay in memory.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Total rollout score of every candidate card, indexed by card code.
+         */
+        private final long[] scores = new long[Card.NUM_CODES];
+
+        /**
+         * Sampled order of the unseen cards: the opponent's hand first, then the deck.
+         */
+        private int[] order = new int[Card.NUM_CODES];
+
+        /**
+         * Number of copies of each card in the sampled opponent hand.
+         */
+        private final byte[] dealtCounts = new byte[Card.NUM_CODES];
+
+        /**
+         * Number of copies of each card in this AI's hand during a rollout.
+         */
+        private final byte[] mineCounts = new byte[Card.NUM_CODES];
+
+        /**
+         * Number of copies of each card in the opponent's hand during a rollout.
+         */
+        private final byte[] theirCounts = new byte[Card.NUM_CODES];
+
+        /**
+         * Random number generator of the worker.
+         */
+        private final SplitMixRandom random = new SplitMixRandom();
+
+        /**
+         * Number of samples to take in the current move.
+         */
+        private int samples;
+
+        /**
+         * Number of samples taken in the current move before the time ran out.
+         */
+        private int taken;
+
+        /**
+         * Gets the worker ready for a move.
+         * @param samples number of samples to take.
+         * @param moveSeed seed of the worker for this move.
+         */
+        void prepare(int samples, long moveSeed) {
+            reinitialize();
+            this.samples = samples;
+            this.taken = 0;
+            random.setSeed(moveSeed);
+            if (order.length < poolSize) {
+                order = new int[pool.length];
+            }
+            for (long rest = candidates; rest != 0; rest &= rest - 1) {
+                scores[Long.numberOfTrailingZeros(rest)] = 0;
+            }
+        }
+
+        /**
+         * Takes the samples and rolls every candidate out on each of them.
+         */
+        @Override
+        protected void compute() {
+            for (int s = 0; s < samples; s++) {
+                // Comparing the difference still works when the deadline wrapped around
+                if (s > 0 && timeBudgetNanos != NO_TIME_LIMIT && System.nanoTime() - deadline > 0) {
+                    break;
+                }
+                // Deal the unseen cards in a random order
+                System.arraycopy(pool, 0, order, 0, poolSize);
+                for (int i = 0; i < poolSize - 1; i++) {
+                    int j = i + random.nextInt(poolSize - i);
+                    int temp = order[i];
+                    order[i] = order[j];
+                    order[j] = temp;
+                }
+                long opponent = 0;
+                int dealt = Math.min(opponentSize, poolSize);
+                Arrays.fill(dealtCounts, (byte) 0);
+                for (int i = 0; i < dealt; i++) {
+                    opponent |= 1L << order[i];
+                    dealtCounts[order[i]]++;
+                }
+                for (long rest = candidates; rest != 0; rest &= rest - 1) {
+                    int code = Long.numberOfTrailingZeros(rest);
+                    scores[code] += rollOut(code, opponent, dealt);
+                }
+                taken++;
+            }
+        }
+
+        /**
+         * Plays a candidate card and finishes the round with the smallest card policy.
+         * @param code card this AI plays.
+         * @param opponent sampled hand of the opponent.
+         * @param next position in order of the next card drawn.
+         * @return WIN_SCORE if this AI wins the round, 0 if it loses, 1 if the deck sample ran out.
+         */
+        private int rollOut(int code, long opponent, int next) {
+            if (next >= poolSize) {
+                return 1;
+            }
+            // A card only leaves a hand's mask when its last copy is played
+            System.arraycopy(handCounts, 0, mineCounts, 0, Card.NUM_CODES);
+            System.arraycopy(dealtCounts, 0, theirCounts, 0, Card.NUM_CODES);
+            int top = code;
+            long mine = play(mineCounts, handMask, code) | draw(mineCounts, order[next++]);
+            long theirs = opponent;
+            boolean theirTurn = true;
+            while (true) {
+                long playable = (theirTurn ? theirs : mine) & table.playableOn(top);
+                if (playable == 0) {
+                    // The side to move is stuck and loses the round
+                    return theirTurn ? WIN_SCORE : 0;
+                }
+                if (next >= poolSize) {
+                    return 1;
+                }
+                top = Long.numberOfTrailingZeros(playable);
+                if (theirTurn) {
+                    theirs = play(theirCounts, theirs, top) | draw(theirCounts, order[next++]);
+                } else {
+                    mine = play(mineCounts, mine, top) | draw(mineCounts, order[next++]);
+                }
+                theirTurn = !theirTurn;
+            }
+        }
+
+        /**
+         * Takes one copy of a card out of a hand in a rollout.
+         * @param counts number of copies of each card in the hand.
+         * @param hand mask of the hand.
+         * @param code code of the card played.
+         * @return mask of the hand after the play.
+         */
+        private long play(byte[] counts, long hand, int code) {
+            return --counts[code] == 0 ? hand & ~(1L << code) : hand;
+        }
+
+        /**
+         * Adds one copy of a card to a hand in a rollout.
+         * @param counts number of copies of each card in the hand.
+         * @param code code of the card drawn.
+         * @return mask of the card, to add to the hand's mask.
+         */
+        private long draw(byte[] counts, int code) {
+            counts[code]++;
+            return 1L << code;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package student;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks that a MonteCarloAI plays a game the same way whatever it played before, so a game
+ * played inside a match, a chunk or a replay has the same result.
+ */
+public class MonteCarloAITest {
+    public static void main(String[] args) {
+        AI monteCarlo = new MonteCarloAI(50, MonteCarloAI.NO_TIME_LIMIT, 0.15, 1, 3);
+        AI opponent = new SmallestCardAI();
+        int games = 40;
+
+        // Every game played by one instance in a row must have the result of the game played alone
+        // loop should print nothing!
+        UnoWarMatch inRow = new UnoWarMatch(monteCarlo.copy(), opponent, 7);
+        for (int i = 0; i < games; i++) {
+            boolean won = inRow.playGame(i);
+            UnoWarMatch alone = new UnoWarMatch(monteCarlo.copy(), opponent, 7);
+            if (alone.playGame(i) != won) {
+                System.out.println("Game " + i + " has another winner when played alone");
+            }
+            if ((GameReplay.record(monteCarlo.copy(), opponent, 7, i).getRecordedWinner() == 1) != won) {
+                System.out.println("Game " + i + " has another winner when recorded");
+            }
+        }
+
+        // The same holds when one instance switches between decks of other ranks and sizes
+        // loop should print nothing!
+        RuleSet[] variants = {new RuleSet(5, 10, 1, 7, 13, PlayRule.STANDARD), new RuleSet(5, 10, 3, 1, 13, PlayRule.STANDARD)};
+        AI switching = monteCarlo.copy();
+        for (int i = 0; i < 10; i++) {
+            RuleSet rules = variants[i % 2];
+            boolean won = new UnoWarMatch(switching, opponent, 7, rules).playGame(i);
+            if (new UnoWarMatch(monteCarlo.copy(), opponent, 7, rules).playGame(i) != won) {
+                System.out.println(rules + ": game " + i + " has another winner when played alone");
+            }
+        }
+
+        // The number of workers splitting the games between them doesn't matter either
+        ForkJoinPool pool = new ForkJoinPool(2);
+        long oneWorker = new ParallelMatch(monteCarlo, opponent, 7, 1, pool).wins(games);
+        long fourWorkers = new ParallelMatch(monteCarlo, opponent, 7, 4, pool).wins(games);
+        System.out.println(oneWorker == fourWorkers);                   // should print true
+
+        // Two samplers with the same seed and settings play the same game
+        System.out.println(new UnoWarMatch(new MonteCarloAI(), opponent, 2).playGame(5)
+                == new UnoWarMatch(new MonteCarloAI(), opponent, 2).playGame(5)); // should print true
+        try {
+            new MonteCarloAI(0, MonteCarloAI.NO_TIME_LIMIT, 0.15, 1, 3); // should print maxSamples and threads must be at least 1
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
+// Expected prints:
+/*
+true
+true
+maxSamples and threads must be at least 1
+ */
@@ -0,0 +1,227 @@
+package student;
+import java.util.List;
+
+/**
+ * Represents a match of Uno War between any number of AI players, seated around one deck and
+ * one card pile. Seats are numbered from 0 and take turns in seat order, wrapping around.
+ * A round ends when the player to move can't follow the top card, and the round goes to the
+ * seat before them, which is the last player who played (or, if the stuck player was the first
+ * to move, the seat before them in turn order). The round winner starts the next round, and the
+ * first seat to win enough rounds wins the game. With two seats this is exactly the game of
+ * UnoWarMatch: the same seed deals the same cards and gives the same winners.
+ * Seat state is kept in arrays indexed by seat, so no object is created to pass the turn.
+ */
+public class MultiSeatMatch {
+
+    /**
+     * Rules every game of the match is played with.
+     */
+    private final RuleSet rules;
+
+    /**
+     * AI of every seat.
+     */
+    private final AI[] ais;
+
+    /**
+     * Hand of every seat in the current game.
+     */
+    private final Hand[] hands;
+
+    /**
+     * Rounds won by every seat in the current game.
+     */
+    private final int[] roundsWon;
+
+    /**
+     * Deck of the current game.
+     */
+    private Deck deck;
+
+    /**
+     * Card pile of the current round.
+     */
+    private CardPile cardPile;
+
+    /**
+     * Random number generator shared by every deck this match deals. It is reseeded before every game.
+     */
+    private final SplitMixRandom random;
+
+    /**
+     * Seed of the match, from which the seed of every game is derived.
+     */
+    private final long seed;
+
+    /**
+     * Creates a match with the standard rules.
+     * @param ais AI of every seat, at least 2.
+     * @param seed seed of the match.
+     */
+    public MultiSeatMatch(List<AI> ais, long seed) {
+        this(ais, seed, RuleSet.STANDARD);
+    }
+
+    /**
+     * Creates a match.
+     * Game number i of the match is always dealt the same way for the same seed.
+     * @param ais AI of every seat, at least 2.
+     * @param seed seed of the match.
+     * @param rules rules every game of the match is played with.
+     * @throws IllegalArgumentException if there are fewer than 2 seats or the deck can't deal every hand.
+     */
+    public MultiSeatMatch(List<AI> ais, long seed, RuleSet rules) {
+        int seats = ais.size();
+        if (seats < 2) {
+            throw new IllegalArgumentException("A match needs at least 2 seats: " + seats);
+        }
+        // Every hand and the first top card are dealt from one shuffle
+        if (seats * rules.getHandSize() >= rules.getDeckSize()) {
+            throw new IllegalArgumentException("A deck of " + rules.getDeckSize() + " cards can't deal "
+                    + seats + " hands of " + rules.getHandSize());
+        }
+        this.rules = rules;
+        this.seed = seed;
+        this.random = new SplitMixRandom(seed);
+        this.ais = new AI[seats];
+        for (int seat = 0; seat < seats; seat++) {
+            AI ai = ais.get(seat);
+            // One AI playing several seats needs an instance per seat, in case it keeps state per game
+            for (int other = 0; other < seat; other++) {
+                if (ais.get(other) == ai) {
+                    ai = ai.copy();
+                    break;
+                }
+            }
+            this.ais[seat] = ai;
+        }
+        this.hands = new Hand[seats];
+        this.roundsWon = new int[seats];
+    }
+
+    /**
+     * Gets the number of seats.
+     * @return number of players.
+     */
+    public int getSeats() {
+        return ais.length;
+    }
+
+    /**
+     * Gets the rules every game of the match is played with.
+     * @return rules of the match.
+     */
+    public RuleSet getRules() {
+        return rules;
+    }
+
+    /**
+     * Plays game number gameIndex of the match.
+     * @param gameIndex number of the game within the match, starting from 0.
+     * @return the seat that won the game.
+     */
+    public int playGame(long gameIndex) {
+        deal(gameIndex);
+        // Seat 0 starts the first round, and every round winner starts the next one
+        int starter = 0;
+        while (true) {
+            int winner = playRound(starter);
+            roundsWon[winner]++;
+            if (roundsWon[winner] == rules.getRoundsToWin()) {
+                return winner;
+            }
+            starter = winner;
+        }
+    }
+
+    /**
+     * Deals a game: the hands in seat order, like UnoWarMatch deals player 1 before player 2.
+     * @param gameIndex number of the game within the match.
+     */
+    private void deal(long gameIndex) {
+        random.setSeed(SplitMixRandom.seedFor(seed, gameIndex));
+        // One deck and one hand per seat are reset for every game; they deal from the reseeded
+        // generator, so they deal like new ones
+        boolean reuse = deck != null;
+        if (reuse) {
+            deck.reset();
+        } else {
+            deck = new Deck(random, rules);
+        }
+        for (int seat = 0; seat < hands.length; seat++) {
+            if (reuse) {
+                hands[seat].reset();
+            } else {
+                hands[seat] = new Hand(deck, rules.getHandSize());
+            }
+            roundsWon[seat] = 0;
+        }
+        // Each AI is shown the hand of the seat that plays after it
+        for (int seat = 0; seat < hands.length; seat++) {
+            ais[seat].startGame(hands[seat], hands[nextSeat(seat)]);
+        }
+    }
+
+    /**
+     * Plays one round, until the player to move is stuck.
+     * @param starter seat that plays first.
+     * @return the seat that won the round.
+     */
+    private int playRound(int starter) {
+        if (cardPile == null) {
+            cardPile = new CardPile(deck.draw(), rules.getTable());
+        } else {
+            cardPile.reset(deck.draw());
+        }
+        int seat = starter;
+        int previous = starter == 0 ? ais.length - 1 : starter - 1;
+        while (true) {
+            Card choice = ais[seat].getPlay(hands[seat], cardPile);
+            if (choice == null) {
+                // The player to move can't follow, so the seat before them takes the round
+                return previous;
+            }
+            cardPile.play(choice);
+            hands[seat].remove(choice);
+            previous = seat;
+            seat = nextSeat(seat);
+        }
+    }
+
+    /**
+     * Gets the seat that moves after a seat.
+     * @param seat the seat.
+     * @return the next seat, wrapping around to 0.
+     */
+    private int nextSeat(int seat) {
+        return seat + 1 == ais.length ? 0 : seat + 1;
+    }
+
+    /**
+     * Plays a range of game numbers of the match and counts the games every seat won.
+     * @param firstGame number of the first game to play.
+     * @param games number of games to play.
+     * @return wins[seat], the number of games each seat won.
+     */
+    public long[] wins(long firstGame, long games) {
+        long[] wins = new long[ais.length];
+        for (long i = firstGame; i < firstGame + games; i++) {
+            wins[playGame(i)]++;
+        }
+        return wins;
+    }
+
+    /**
+     * Plays games 0 to nTrials - 1 of the match and computes the win rate of every seat.
+     * @param nTrials the number of games to simulate.
+     * @return winRates[seat], the fraction of the games each seat won.
+     */
+    public double[] winRates(long nTrials) {
+        long[] wins = wins(0, nTrials);
+        double[] winRates = new double[wins.length];
+        for (int seat = 0; seat < wins.length; seat++) {
+            winRates[seat] = wins[seat] / (double) nTrials;
+        }
+        return winRates;
+    }
+}
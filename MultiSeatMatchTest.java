@@ -0,0 +1,53 @@
+package student;
+import java.util.List;
+
+/**
+ * Checks that a MultiSeatMatch of two seats plays exactly the games of UnoWarMatch.
+ */
+public class MultiSeatMatchTest {
+    public static void main(String[] args) {
+        AI[] ais = {new AI(), new SmallestCardAI(), new BiggestCardAI(), new OracleAI(4, OracleAI.NO_TIME_LIMIT)};
+        RuleSet[] variants = {RuleSet.STANDARD, new RuleSet(7, 5, 2, 1, 13, PlayRule.STANDARD)};
+
+        // Every game must have the same winner in both matches
+        // loop should print nothing!
+        for (RuleSet rules : variants) {
+            for (AI ai1 : ais) {
+                for (AI ai2 : ais) {
+                    int games = ai1 instanceof OracleAI || ai2 instanceof OracleAI ? 100 : 1000;
+                    UnoWarMatch match = new UnoWarMatch(ai1.copy(), ai2.copy(), 21, rules);
+                    MultiSeatMatch seats = new MultiSeatMatch(List.of(ai1.copy(), ai2.copy()), 21, rules);
+                    for (int i = 0; i < games; i++) {
+                        boolean won = match.playGame(i);
+                        if ((seats.playGame(i) == 0) != won) {
+                            System.out.println(rules + ", " + ai1 + " vs. " + ai2 + ": game " + i + " has another winner");
+                        }
+                    }
+                }
+            }
+        }
+
+        MultiSeatMatch three = new MultiSeatMatch(List.of(new BiggestCardAI(), new BiggestCardAI(), new BiggestCardAI()), 5);
+        long[] wins = three.wins(0, 3000);
+        System.out.println(three.getSeats());                           // should print 3
+        System.out.println(wins[0] + wins[1] + wins[2]);                // should print 3000
+        try {
+            new MultiSeatMatch(List.of(new AI()), 5);                   // should print A match needs at least 2 seats: 1
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+        try {
+            new MultiSeatMatch(List.of(new AI(), new AI(), new AI()), 5,
+                    new RuleSet(5, 10, 1, 11, 13, PlayRule.STANDARD)); // should print A deck of 12 cards can't deal 3 hands of 5
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
+// Expected prints:
+/*
+3
+3000
+A match needs at least 2 seats: 1
+A deck of 12 cards can't deal 3 hands of 5
+ */
@@ -0,0 +1,541 @@
+package student;
+import java.util.Arrays;
+
+/**
+ * The OracleAI class represents an AI that sees everything: its own hand, the opponent's hand and
+ * the order of the cards still in the deck. It uses them to search the game tree of the current
+ * round and plays the card that wins the round if any card can, which shows how far the simple
+ * strategies are from perfect play.
+ * The search is a minimax (negamax) search with alpha-beta pruning. Positions are remembered in a
+ * transposition table keyed by a Zobrist hash of both hands, the top card and the number of cards
+ * drawn, and the search deepens one ply at a time until it proves the result or reaches the depth
+ * limit. Cards after the next reshuffle of the deck are unknown, so the search stops there and
+ * guesses who is ahead.
+ * A time budget per move can also be given. It makes the choices depend on how fast the machine
+ * is, so the default oracle has none and plays the same on every machine, which matches, replays
+ * and checkpoints rely on.
+ * Each instance keeps search state, so every match and thread needs its own copy.
+ */
+public class OracleAI extends AI {
+
+    /**
+     * Time budget meaning the search only stops at its depth limit.
+     */
+    public static final long NO_TIME_LIMIT = 0;
+
+    /**
+     * Score of a won round, less one point per ply it takes to win, so quicker wins score higher.
+     */
+    private static final int WIN = 1000;
+
+    /**
+     * Scores further from 0 than this are proven wins or losses rather than guesses.
+     */
+    private static final int DECIDED = WIN - 200;
+
+    /**
+     * Score larger than any real score.
+     */
+    private static final int INFINITY = WIN + 1;
+
+    /**
+     * Largest number of plies the search looks ahead, and so of deck cards it looks at.
+     */
+    private static final int MAX_PLY = 52;
+
+    /**
+     * Largest number of copies of one card a hand is hashed with.
+     */
+    private static final int MAX_COPIES = 7;
+
+    /**
+     * Number of bits of the transposition table index.
+     */
+    private static final int TABLE_BITS = 16;
+
+    /**
+     * Transposition table flag of a score that is exact.
+     */
+    private static final byte EXACT = 0;
+
+    /**
+     * Transposition table flag of a score that is only a lower bound.
+     */
+    private static final byte LOWER = 1;
+
+    /**
+     * Transposition table flag of a score that is only an upper bound.
+     */
+    private static final byte UPPER = 2;
+
+    /**
+     * Zobrist keys of each side holding a number of copies of each card. Holding no copies has key 0.
+     */
+    private static final long[][][] HAND_KEYS = new long[2][Card.NUM_CODES][MAX_COPIES + 1];
+
+    /**
+     * Zobrist keys of each top card.
+     */
+    private static final long[] TOP_KEYS = new long[Card.NUM_CODES];
+
+    /**
+     * Zobrist keys of the number of cards drawn since the start of the search.
+     */
+    private static final long[] DRAWN_KEYS = new long[MAX_PLY + 1];
+
+    /**
+     * Zobrist key of the opponent being the side to move.
+     */
+    private static final long SIDE_KEY;
+
+    static {
+        SplitMixRandom random = new SplitMixRandom(0x5eedL);
+        for (int side = 0; side < 2; side++) {
+            for (int code = 0; code < Card.NUM_CODES; code++) {
+                for (int copies = 1; copies <= MAX_COPIES; copies++) {
+                    HAND_KEYS[side][code][copies] = random.nextLong();
+                }
+            }
+        }
+        for (int code = 0; code < Card.NUM_CODES; code++) {
+            TOP_KEYS[code] = random.nextLong();
+        }
+        for (int drawn = 0; drawn <= MAX_PLY; drawn++) {
+            DRAWN_KEYS[drawn] = random.nextLong();
+        }
+        SIDE_KEY = random.nextLong();
+    }
+
+    /**
+     * Deepest search, in plies.
+     */
+    private final int maxDepth;
+
+    /**
+     * Time the search may take for one move, in nanoseconds, or NO_TIME_LIMIT.
+     */
+    private final long timeBudgetNanos;
+
+    /**
+     * Hand of the opponent in the current game, or null before the first game.
+     */
+    private Hand opponentHand;
+
+    /**
+     * Table of which cards can be played on which top card.
+     */
+    private PlayTable table;
+
+    /**
+     * Number of copies of each card held by each side; side 0 is this AI and side 1 the opponent.
+     */
+    private final byte[][] counts = new byte[2][Card.NUM_CODES];
+
+    /**
+     * Bit masks of the cards held by each side.
+     */
+    private final long[] masks = new long[2];
+
+    /**
+     * Sum of the ranks of the cards held by each side.
+     */
+    private final int[] rankSums = new int[2];
+
+    /**
+     * Codes of the known cards that will be drawn next, in order.
+     */
+    private final int[] upcoming = new int[MAX_PLY];
+
+    /**
+     * Number of known cards in upcoming.
+     */
+    private int known;
+
+    /**
+     * Number of cards drawn since the start of the search.
+     */
+    private int drawn;
+
+    /**
+     * Code of the top card of the pile.
+     */
+    private int top;
+
+    /**
+     * Largest hand size, used to scale guessed scores.
+     */
+    private int handSize;
+
+    /**
+     * Zobrist hash of the current position.
+     */
+    private long hash;
+
+    /**
+     * Number of searches started, mixed into every hash so old table entries never match.
+     */
+    private long searches;
+
+    /**
+     * Number of positions visited by the current search, only counted when it has a time budget.
+     */
+    private long nodes;
+
+    /**
+     * Time at which the current search must stop, in System.nanoTime() units.
+     */
+    private long deadline;
+
+    /**
+     * Whether the current search ran out of time.
+     */
+    private boolean aborted;
+
+    /**
+     * Transposition table keys; an entry belongs to a position if its key equals the position's hash.
+     */
+    private final long[] tableKeys = new long[1 << TABLE_BITS];
+
+    /**
+     * Transposition table scores.
+     */
+    private final short[] tableScores = new short[1 << TABLE_BITS];
+
+    /**
+     * Transposition table search depths.
+     */
+    private final byte[] tableDepths = new byte[1 << TABLE_BITS];
+
+    /**
+     * Transposition table flags (EXACT, LOWER or UPPER).
+     */
+    private final byte[] tableFlags = new byte[1 << TABLE_BITS];
+
+    /**
+     * Transposition table best moves.
+     */
+    private final byte[] tableMoves = new byte[1 << TABLE_BITS];
+
+    /**
+     * Creates an oracle that searches up to 8 plies deep without a time limit.
+     */
+    public OracleAI() {
+        this(8, NO_TIME_LIMIT);
+    }
+
+    /**
+     * Creates an oracle.
+     * @param maxDepth deepest search in plies, between 1 and 52.
+     * @param timeBudgetNanos time the search may take for one move, in nanoseconds; NO_TIME_LIMIT
+     *                        or Long.MAX_VALUE for no limit.
+     */
+    public OracleAI(int maxDepth, long timeBudgetNanos) {
+        if (maxDepth < 1 || maxDepth > MAX_PLY) {
+            throw new IllegalArgumentException("maxDepth must be between 1 and " + MAX_PLY + ": " + maxDepth);
+        }
+        if (timeBudgetNanos < 0) {
+            throw new IllegalArgumentException("timeBudgetNanos can't be negative: " + timeBudgetNanos);
+        }
+        this.maxDepth = maxDepth;
+        this.timeBudgetNanos = timeBudgetNanos == Long.MAX_VALUE ? NO_TIME_LIMIT : timeBudgetNanos;
+    }
+
+    /**
+     * Remembers the opponent's hand for the game.
+     * @param hand the hand this AI plays from during the game.
+     * @param opponentHand the hand of the other player.
+     */
+    @Override
+    public void startGame(Hand hand, Hand opponentHand) {
+        this.opponentHand = opponentHand;
+    }
+
+    /**
+     * Gets card from hand that AI chose to be played. In this AI, the choice is the card with the
+     * best searched outcome for the round.
+     * @param hand of cards AI has to choose from.
+     * @param cardPile object used to make decision.
+     * @return AI's choice of card from hand to play, null if no possible card to play
+     */
+    @Override
+    public Card getPlay(Hand hand, CardPile cardPile) {
+        long playable = hand.playableMask(cardPile);
+        if (playable == 0) {
+            return null;
+        }
+        // Nothing to search with only one choice, or without knowing the opponent
+        if (Long.bitCount(playable) == 1 || opponentHand == null) {
+            return hand.smallestPlayable(cardPile);
+        }
+        setUp(hand, cardPile);
+        // The deck is about to be reshuffled, so not even the first replacement card is known
+        if (known == 0) {
+            return hand.smallestPlayable(cardPile);
+        }
+
+        int best = Long.numberOfTrailingZeros(playable);
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            int alpha = -INFINITY;
+            int iterationBest = -1;
+            // Try the best move of the last iteration first, then the others
+            for (long moves = playable; moves != 0; ) {
+                int code;
+                if (iterationBest < 0 && (moves >>> best & 1) != 0) {
+                    code = best;
+                } else {
+                    code = Long.numberOfTrailingZeros(moves);
+                }
+                moves &= ~(1L << code);
+                int score = searchMove(0, code, depth, alpha, INFINITY, 0);
+                if (aborted) {
+                    break;
+                }
+                if (score > alpha || iterationBest < 0) {
+                    alpha = score;
+                    iterationBest = code;
+                }
+            }
+            // An unfinished iteration can't be trusted, so keep the last finished one
+            if (aborted) {
+                break;
+            }
+            best = iterationBest;
+            if (alpha >= DECIDED || alpha <= -DECIDED) {
+                break;
+            }
+        }
+        return Card.fromCode(best);
+    }
+
+    /**
+     * Copies both hands, the top card and the known deck cards into the search state.
+     * @param hand this AI's hand.
+     * @param cardPile the pile being played on.
+     */
+    private void setUp(Hand hand, CardPile cardPile) {
+        table = cardPile.getTable();
+        top = cardPile.getTopCode();
+        handSize = Math.max(1, Math.max(hand.getSize(), opponentHand.getSize()));
+        searches++;
+        hash = SplitMixRandom.seedFor(0, searches) ^ TOP_KEYS[top] ^ DRAWN_KEYS[0];
+        drawn = 0;
+        nodes = 0;
+        aborted = false;
+        deadline = System.nanoTime() + timeBudgetNanos;
+
+        Hand[] hands = {hand, opponentHand};
+        for (int side = 0; side < 2; side++) {
+            Arrays.fill(counts[side], (byte) 0);
+            masks[side] = 0;
+            rankSums[side] = 0;
+            for (int i = 0; i < hands[side].getSize(); i++) {
+                add(side, hands[side].getCode(i));
+            }
+        }
+
+        Deck deck = hand.getDeck();
+        known = 0;
+        while (known < MAX_PLY && deck.peekCode(known) >= 0) {
+            upcoming[known] = deck.peekCode(known);
+            known++;
+        }
+    }
+
+    /**
+     * Searches a position with the negamax form of minimax and alpha-beta pruning.
+     * @param side side to move, 0 for this AI and 1 for the opponent.
+     * @param depth plies left to search.
+     * @param alpha score the side to move is already sure of.
+     * @param beta score above which the opponent avoids this position.
+     * @param ply plies since the start of the search.
+     * @return score of the position for the side to move.
+     */
+    private int negamax(int side, int depth, int alpha, int beta, int ply) {
+        long playable = masks[side] & table.playableOn(top);
+        // A side that can't play loses the round
+        if (playable == 0) {
+            return -(WIN - ply);
+        }
+        // The next draw would come from a reshuffled deck, or the depth is used up
+        if (depth == 0 || drawn >= known) {
+            return evaluate(side, playable);
+        }
+        // Comparing the difference still works when the deadline wrapped around
+        if (timeBudgetNanos != NO_TIME_LIMIT && (++nodes & 1023) == 0 && System.nanoTime() - deadline > 0) {
+            aborted = true;
+            return 0;
+        }
+
+        int index = (int) hash & ((1 << TABLE_BITS) - 1);
+        int tableMove = -1;
+        if (tableKeys[index] == hash) {
+            tableMove = tableMoves[index];
+            if (tableDepths[index] >= depth) {
+                int score = tableScores[index];
+                if (tableFlags[index] == EXACT) {
+                    return score;
+                } else if (tableFlags[index] == LOWER) {
+                    alpha = Math.max(alpha, score);
+                } else {
+                    beta = Math.min(beta, score);
+                }
+                if (alpha >= beta) {
+                    return score;
+                }
+            }
+        }
+
+        int alphaStart = alpha;
+        int best = -INFINITY;
+        int bestMove = -1;
+        // Try the table's move first, then the others from the smallest card up
+        for (long moves = playable; moves != 0; ) {
+            int code;
+            if (bestMove < 0 && tableMove >= 0 && (moves >>> tableMove & 1) != 0) {
+                code = tableMove;
+            } else {
+                code = Long.numberOfTrailingZeros(moves);
+            }
+            moves &= ~(1L << code);
+            int score = searchMove(side, code, depth, alpha, beta, ply);
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = code;
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                break;
+            }
+        }
+
+        // The number of cards drawn is part of the hash, so a position always has the same ply
+        tableKeys[index] = hash;
+        tableScores[index] = (short) best;
+        tableDepths[index] = (byte) depth;
+        tableMoves[index] = (byte) bestMove;
+        if (best <= alphaStart) {
+            tableFlags[index] = UPPER;
+        } else if (best >= beta) {
+            tableFlags[index] = LOWER;
+        } else {
+            tableFlags[index] = EXACT;
+        }
+        return best;
+    }
+
+    /**
+     * Plays a card, searches the position after it and takes the card back.
+     * @param side side playing the card.
+     * @param code code of the card played.
+     * @param depth plies left to search, including this one.
+     * @param alpha score the side playing is already sure of.
+     * @param beta score above which the opponent avoids this move.
+     * @param ply plies since the start of the search.
+     * @return score of the move for the side playing it.
+     */
+    private int searchMove(int side, int code, int depth, int alpha, int beta, int ply) {
+        int oldTop = top;
+        // Play the card and draw its replacement
+        remove(side, code);
+        setTop(code);
+        add(side, upcoming[drawn]);
+        hash ^= DRAWN_KEYS[drawn] ^ DRAWN_KEYS[drawn + 1] ^ SIDE_KEY;
+        drawn++;
+
+        int score = -negamax(1 - side, depth - 1, -beta, -alpha, ply + 1);
+
+        // Take the move back in reverse order
+        drawn--;
+        hash ^= DRAWN_KEYS[drawn] ^ DRAWN_KEYS[drawn + 1] ^ SIDE_KEY;
+        remove(side, upcoming[drawn]);
+        setTop(oldTop);
+        add(side, code);
+        return score;
+    }
+
+    /**
+     * Guesses the score of a position that isn't searched further. Holding high cards and having
+     * several cards to play make it easier to keep following, so both count for the side to move.
+     * @param side side to move.
+     * @param playable mask of the cards the side to move can play.
+     * @return score between -WIN / 5 and WIN / 5 for the side to move.
+     */
+    private int evaluate(int side, long playable) {
+        int ranks = (rankSums[side] - rankSums[1 - side]) * 100 / (13 * handSize);
+        int choices = Long.bitCount(playable) * 100 / handSize;
+        return (ranks + choices) / 2;
+    }
+
+    /**
+     * Puts a card on top of the pile.
+     * @param code code of the new top card.
+     */
+    private void setTop(int code) {
+        hash ^= TOP_KEYS[top] ^ TOP_KEYS[code];
+        top = code;
+    }
+
+    /**
+     * Adds a copy of a card to a side's hand.
+     * @param side side getting the card.
+     * @param code code of the card.
+     */
+    private void add(int side, int code) {
+        int copies = counts[side][code];
+        hash ^= HAND_KEYS[side][code][Math.min(copies, MAX_COPIES)];
+        hash ^= HAND_KEYS[side][code][Math.min(copies + 1, MAX_COPIES)];
+        counts[side][code]++;
+        masks[side] |= 1L << code;
+        rankSums[side] += Card.rankOf(code);
+    }
+
+    /**
+     * Removes a copy of a card from a side's hand.
+     * @param side side losing the card.
+     * @param code code of the card.
+     */
+    private void remove(int side, int code) {
+        int copies = counts[side][code];
+        hash ^= HAND_KEYS[side][code][Math.min(copies, MAX_COPIES)];
+        hash ^= HAND_KEYS[side][code][Math.min(copies - 1, MAX_COPIES)];
+        counts[side][code]--;
+        if (counts[side][code] == 0) {
+            masks[side] &= ~(1L << code);
+        }
+        rankSums[side] -= Card.rankOf(code);
+    }
+
+    /**
+     * Gets a new oracle with the same settings, since an oracle keeps search state.
+     * @return a new OracleAI.
+     */
+    @Override
+    public AI copy() {
+        return new OracleAI(maxDepth, timeBudgetNanos);
+    }
+
+    /**
+     * Determines if the oracle always makes the same plays in the same game, which it only does
+     * when the depth rather than the clock ends its searches.
+     * @return true if there is no time budget.
+     */
+    @Override
+    public boolean isDeterministic() {
+        return timeBudgetNanos == NO_TIME_LIMIT;
+    }
+
+    /**
+     * Name of AI with its settings, so AIs with other settings aren't mistaken for this one.
+     * @return "Oracle AI" followed by the depth and any time budget, such as "Oracle AI (depth 8)".
+     */
+    @Override
+    public String toString() {
+        String budget = timeBudgetNanos == NO_TIME_LIMIT ? "" : ", budget " + timeBudgetNanos + " ns";
+        return "Oracle AI (depth " + maxDepth + budget + ")";
+    }
+}
@@ -0,0 +1,149 @@
+package student;
+
+/**
+ * The difference between the win rates of two AIs, measured on pairs of games that use the same
+ * deal with the seats swapped (see TournamentScheduler.paired). On every deal the first AI plays
+ * once in seat 1 and once in seat 2, and the deal's result is its wins minus one: 1 if it won
+ * both games, -1 if it lost both, 0 if each AI won one. How good the deal was for a seat is the
+ * same for both AIs, so it drops out of the difference. The ratio of the variance of the paired
+ * results to that of the same games played on independent deals is the fraction of games the
+ * paired comparison needs for the same confidence. For the built-in AIs it was 0.70 to 0.82 for
+ * closely matched pairs, and about 1 for lopsided ones, where one AI wins nearly every game anyway.
+ */
+public final class PairedEstimate {
+
+    /**
+     * Number of deals, each played twice.
+     */
+    private final long pairs;
+
+    /**
+     * Number of deals on which the first AI won in seat 1.
+     */
+    private final long wonFirst;
+
+    /**
+     * Number of deals on which the first AI won in seat 2.
+     */
+    private final long wonSecond;
+
+    /**
+     * Number of deals on which the first AI won in both seats.
+     */
+    private final long wonBoth;
+
+    /**
+     * Creates the estimate of some pairs of games.
+     * @param pairs number of deals, each played twice, at least 1.
+     * @param wonFirst number of deals on which the first AI won in seat 1.
+     * @param wonSecond number of deals on which the first AI won in seat 2.
+     * @param wonBoth number of deals on which the first AI won in both seats.
+     */
+    public PairedEstimate(long pairs, long wonFirst, long wonSecond, long wonBoth) {
+        if (pairs < 1 || wonBoth < 0 || wonBoth > Math.min(wonFirst, wonSecond)
+                || wonFirst + wonSecond - wonBoth > pairs) {
+            throw new IllegalArgumentException("Invalid paired counts: " + wonFirst + ", " + wonSecond
+                    + " and " + wonBoth + " of " + pairs);
+        }
+        this.pairs = pairs;
+        this.wonFirst = wonFirst;
+        this.wonSecond = wonSecond;
+        this.wonBoth = wonBoth;
+    }
+
+    /**
+     * Gets the same estimate from the point of view of the second AI.
+     * @return the estimate with the AIs swapped.
+     */
+    public PairedEstimate reversed() {
+        // The second AI wins in seat 1 exactly when the first AI loses in seat 2, and the other way around
+        return new PairedEstimate(pairs, pairs - wonSecond, pairs - wonFirst, pairs - wonFirst - wonSecond + wonBoth);
+    }
+
+    /**
+     * Gets the win rate of the first AI minus the win rate of the second AI over all the games.
+     * @return mean of the deals' results, between -1 and 1.
+     */
+    public double getDifference() {
+        return (wonFirst + wonSecond - pairs) / (double) pairs;
+    }
+
+    /**
+     * Gets the sample variance of the deals' results.
+     * @return variance of one deal's result.
+     */
+    public double getVariance() {
+        if (pairs < 2) {
+            return 0;
+        }
+        // A result is 1 or -1 when the first AI won both or neither game, so its square is 1 then
+        double sum = wonFirst + wonSecond - pairs;
+        double squares = pairs - (wonFirst + wonSecond - 2 * wonBoth);
+        return (squares - sum * sum / pairs) / (pairs - 1);
+    }
+
+    /**
+     * Gets the variance one deal's result would have if its two games were dealt independently,
+     * from the win rates in each seat.
+     * @return variance of an unpaired result.
+     */
+    public double getUnpairedVariance() {
+        if (pairs < 2) {
+            return 0;
+        }
+        return (wonFirst * (double) (pairs - wonFirst) + wonSecond * (double) (pairs - wonSecond))
+                / ((double) pairs * (pairs - 1));
+    }
+
+    /**
+     * Gets the paired variance as a fraction of the unpaired one, which is also the fraction of
+     * games the paired comparison needs for the same confidence.
+     * @return ratio of the variances, or 1 if the games show no variance at all.
+     */
+    public double getVarianceRatio() {
+        double unpaired = getUnpairedVariance();
+        return unpaired == 0 ? 1 : getVariance() / unpaired;
+    }
+
+    /**
+     * Gets the standard error of the difference.
+     * @return standard error of the mean of the deals' results.
+     */
+    public double getStandardError() {
+        return Math.sqrt(getVariance() / pairs);
+    }
+
+    /**
+     * Gets the lower end of the 95% confidence interval of the difference.
+     * @return lower end of the interval.
+     */
+    public double getLower() {
+        return getDifference() - WinRateEstimate.Z_95 * getStandardError();
+    }
+
+    /**
+     * Gets the upper end of the 95% confidence interval of the difference.
+     * @return upper end of the interval.
+     */
+    public double getUpper() {
+        return getDifference() + WinRateEstimate.Z_95 * getStandardError();
+    }
+
+    /**
+     * Gets the number of deals.
+     * @return number of deals, each played twice.
+     */
+    public long getPairs() {
+        return pairs;
+    }
+
+    /**
+     * Describes the estimate.
+     * @return difference, interval, variance and number of deals as a string.
+     */
+    @Override
+    public String toString() {
+        return String.format("%+.3f [%+.3f, %+.3f], variance %.3f (%.0f%% of unpaired) in %d deals",
+                getDifference(), getLower(), getUpper(), getVariance(), 100 * getVarianceRatio(), pairs);
+    }
+}
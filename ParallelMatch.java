@@ -0,0 +1,187 @@
+package student;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plays many Uno War games between two AIs in parallel on a fork-join pool.
+ * The trials are split evenly between a fixed number of workers. Each worker owns its own
+ * UnoWarMatch (and so its own deck, hands, card pile and random number generator) and plays a
+ * consecutive range of game numbers of the match. Every game is dealt from a seed derived from the
+ * match seed and its game number, and the partial win counts are added together at the end, so the
+ * result only depends on the seed, never on the number of workers or on thread scheduling.
+ * Every worker plays with its own copy of the AIs (see AI.copy), so AIs that keep state are safe too.
+ */
+public class ParallelMatch {
+
+    /**
+     * AI player 1 instance.
+     */
+    private final AI ai1;
+
+    /**
+     * AI player 2 instance.
+     */
+    private final AI ai2;
+
+    /**
+     * Seed of the match that every game's seed is derived from.
+     */
+    private final long seed;
+
+    /**
+     * Number of workers the trials are split between.
+     */
+    private final int workers;
+
+    /**
+     * Pool the workers are run on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a parallel match that runs on the common fork-join pool with one worker per core.
+     * @param ai1 AI for player 1.
+     * @param ai2 AI for player 2.
+     * @param seed seed for the whole match.
+     */
+    public ParallelMatch(AI ai1, AI ai2, long seed) {
+        this(ai1, ai2, seed, Runtime.getRuntime().availableProcessors(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a parallel match.
+     * @param ai1 AI for player 1.
+     * @param ai2 AI for player 2.
+     * @param seed seed for the whole match.
+     * @param workers number of workers to split the trials between, at least 1.
+     * @param pool fork-join pool the workers run on.
+     */
+    public ParallelMatch(AI ai1, AI ai2, long seed, int workers, ForkJoinPool pool) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be at least 1: " + workers);
+        }
+        this.ai1 = ai1;
+        this.ai2 = ai2;
+        this.seed = seed;
+        this.workers = workers;
+        this.pool = pool;
+    }
+
+    /**
+     * Plays nTrials games and counts how many of them player 1 won.
+     * @param nTrials the number of games to simulate.
+     * @return number of games won by player 1.
+     */
+    public long wins(long nTrials) {
+        return pool.invoke(new Splitter(nTrials));
+    }
+
+    /**
+     * Calculates the win rate of player 1 over multiple Uno War game trials, played in parallel.
+     * @param nTrials the number of games to simulate.
+     * @return the fraction of games won by player 1 out of nTrials games.
+     */
+    public double winRate(int nTrials) {
+        return wins(nTrials) / (double) nTrials;
+    }
+
+    /**
+     * Root task that forks one worker per share of the trials and adds up their wins.
+     */
+    private final class Splitter extends RecursiveTask<Long> {
+
+        /**
+         * Version of the serialized form, which tasks inherit but never use.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Total number of games to play.
+         */
+        private final long nTrials;
+
+        /**
+         * Creates the root task.
+         * @param nTrials total number of games to play.
+         */
+        Splitter(long nTrials) {
+            this.nTrials = nTrials;
+        }
+
+        /**
+         * Forks the workers and merges their win counts.
+         * @return number of games won by player 1.
+         */
+        @Override
+        protected Long compute() {
+            Worker[] tasks = new Worker[workers];
+            long firstGame = 0;
+            for (int i = 0; i < workers; i++) {
+                // Spread the remainder over the first workers
+                long share = nTrials / workers + (i < nTrials % workers ? 1 : 0);
+                tasks[i] = new Worker(firstGame, share);
+                firstGame += share;
+            }
+            ForkJoinTask.invokeAll(tasks);
+
+            long total = 0;
+            for (Worker task : tasks) {
+                total += task.join();
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Task that plays its share of the games on a match of its own.
+     */
+    private final class Worker extends RecursiveTask<Long> {
+
+        /**
+         * Version of the serialized form, which tasks inherit but never use.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Number of the first game this worker plays.
+         */
+        private final long firstGame;
+
+        /**
+         * Number of games this worker plays.
+         */
+        private final long games;
+
+        /**
+         * Creates a worker.
+         * @param firstGame number of the first game to play.
+         * @param games number of games to play.
+         */
+        Worker(long firstGame, long games) {
+            this.firstGame = firstGame;
+            this.games = games;
+        }
+
+        /**
+         * Plays the games.
+         * @return number of games won by player 1.
+         */
+        @Override
+        protected Long compute() {
+            // Games between the built-in strategies are played by the batch kernel, with the same results
+            if (BatchSimulator.supports(ai1) && BatchSimulator.supports(ai2)) {
+                int lanes = (int) Math.min(games, BatchSimulator.DEFAULT_LANES);
+                return new BatchSimulator(ai1, ai2, seed, Math.max(1, lanes)).wins(firstGame, games);
+            }
+            UnoWarMatch match = new UnoWarMatch(ai1.copy(), ai2.copy(), seed);
+            long won = 0;
+            for (long i = firstGame; i < firstGame + games; i++) {
+                if (match.playGame(i)) {
+                    won++;
+                }
+            }
+            return won;
+        }
+    }
+}
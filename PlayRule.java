@@ -0,0 +1,25 @@
+package student;
+
+/**
+ * A rule deciding which cards may be played on which top card.
+ * Rules are only asked once per pair of cards, when a PlayTable is built from them,
+ * so they can be written for clarity rather than speed.
+ */
+@FunctionalInterface
+public interface PlayRule {
+
+    /**
+     * The standard Uno War rule: a card can be played if its rank is at least the rank of the
+     * top card, or if it has the same suit as the top card.
+     */
+    PlayRule STANDARD = (topCard, card) ->
+            card.getRankNum() >= topCard.getRankNum() || card.getSuitNum() == topCard.getSuitNum();
+
+    /**
+     * Determines if a card may be played on a top card.
+     * @param topCard card on top of the pile.
+     * @param card card that would be played.
+     * @return true if the card may be played on the top card.
+     */
+    boolean canPlay(Card topCard, Card card);
+}
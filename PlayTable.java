@@ -0,0 +1,73 @@
+package student;
+import java.util.Arrays;
+
+/**
+ * A precomputed table of which cards may be played on which top card, built once from a PlayRule.
+ * For each of the 52 top cards it stores a 52-bit mask with the bit of every playable card code set,
+ * so checking a move is a single array and bit lookup however complicated the rule is.
+ */
+public final class PlayTable {
+
+    /**
+     * Table of the standard Uno War rule.
+     */
+    public static final PlayTable STANDARD = new PlayTable(PlayRule.STANDARD);
+
+    /**
+     * Masks of the playable card codes, indexed by the code of the top card.
+     */
+    private final long[] playable;
+
+    /**
+     * Builds the table of a rule by asking it about every pair of cards.
+     * @param rule rule the table is built from.
+     */
+    public PlayTable(PlayRule rule) {
+        this.playable = new long[Card.NUM_CODES];
+        for (int top = 0; top < Card.NUM_CODES; top++) {
+            for (int code = 0; code < Card.NUM_CODES; code++) {
+                if (rule.canPlay(Card.fromCode(top), Card.fromCode(code))) {
+                    playable[top] |= 1L << code;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the mask of the cards that may be played on a top card.
+     * @param topCode code of the top card.
+     * @return mask with the bit of every playable card code set.
+     */
+    public long playableOn(int topCode) {
+        return playable[topCode];
+    }
+
+    /**
+     * Determines if a card may be played on a top card.
+     * @param topCode code of the top card.
+     * @param code code of the card that would be played.
+     * @return true if the card may be played.
+     */
+    public boolean canPlay(int topCode, int code) {
+        return (playable[topCode] >>> code & 1) != 0;
+    }
+
+    /**
+     * Determines if another table allows exactly the same plays.
+     * @param obj the other object.
+     * @return true if obj is a PlayTable with the same masks.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof PlayTable && Arrays.equals(playable, ((PlayTable) obj).playable);
+    }
+
+    /**
+     * Computes a hash code from the masks, consistent with equals.
+     * @return hash code of the table.
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(playable);
+    }
+}
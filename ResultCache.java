@@ -0,0 +1,303 @@
+package student;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A persistent cache of the win counts of chunks of games, so a tournament that is run again only
+ * plays the chunks whose inputs changed. A chunk is keyed by the fingerprints of both AIs, the
+ * fingerprint of the rules, the matchup seed and its range of game numbers. Together with the
+ * game classes these decide every game, so a chunk with the same key always has the same result.
+ * An AI's fingerprint is a hash of the class files of its class, its superclasses up to AI and
+ * their nested classes, plus its toString. Changing the code of a strategy changes its key, but
+ * settings passed to its constructor are only noticed if toString shows them. Games of an AI
+ * that isn't deterministic (see AI.isDeterministic) can't be repeated, so they are never cached.
+ * The cache keeps at most maxEntries chunks and forgets the least recently used ones first. It
+ * is read from its file when it is created and written back, in one step, by save().
+ */
+public final class ResultCache {
+
+    /**
+     * First line of every cache file, with the format version.
+     */
+    private static final String HEADER = "UnoWar result cache 1";
+
+    /**
+     * Classes of the game itself, whose code is part of every key.
+     */
+    private static final Class<?>[] GAME_CLASSES = {Card.class, Deck.class, Hand.class, CardPile.class,
+        PlayTable.class, RuleSet.class, SplitMixRandom.class, UnoWarMatch.class, BatchSimulator.class};
+
+    /**
+     * File the cache is read from and saved to.
+     */
+    private final Path file;
+
+    /**
+     * Largest number of chunks kept.
+     */
+    private final int maxEntries;
+
+    /**
+     * Games won by the AI in seat 1, by key, least recently used first.
+     */
+    private final LinkedHashMap<String, Long> entries;
+
+    /**
+     * Fingerprints of the AI classes seen so far, by class.
+     */
+    private final Map<Class<?>, String> classFingerprints = new HashMap<>();
+
+    /**
+     * Fingerprint of the game classes.
+     */
+    private final String gameFingerprint;
+
+    /**
+     * Number of lookups that found a result.
+     */
+    private long hits;
+
+    /**
+     * Number of lookups that found nothing.
+     */
+    private long misses;
+
+    /**
+     * Creates a cache, reading the results saved in its file if there is one.
+     * @param file file the cache is read from and saved to.
+     * @param maxEntries largest number of chunks kept, at least 1.
+     * @throws IOException if the file exists but can't be read or isn't a cache.
+     */
+    public ResultCache(Path file, int maxEntries) throws IOException {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1: " + maxEntries);
+        }
+        this.file = file;
+        this.maxEntries = maxEntries;
+        // Access order makes the map's iteration order the LRU order
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            /**
+             * Forgets the least recently used chunk once the cache holds more than maxEntries.
+             * @param eldest least recently used chunk.
+             * @return true if it should be removed.
+             */
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > ResultCache.this.maxEntries;
+            }
+        };
+        this.gameFingerprint = fingerprint(GAME_CLASSES);
+
+        if (Files.exists(file)) {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.isEmpty() || !lines.get(0).equals(HEADER)) {
+                throw new IOException("Not a result cache: " + file);
+            }
+            try {
+                for (String line : lines.subList(1, lines.size())) {
+                    int split = line.lastIndexOf(' ');
+                    entries.put(line.substring(0, split), Long.parseLong(line.substring(split + 1)));
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Damaged result cache: " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Builds the key of a chunk of games.
+     * @param ai1 AI in seat 1.
+     * @param ai2 AI in seat 2.
+     * @param rules rules every game is played with.
+     * @param matchupSeed seed of the matchup.
+     * @param firstGame number of the first game.
+     * @param games number of games.
+     * @return the key.
+     */
+    synchronized String key(AI ai1, AI ai2, RuleSet rules, long matchupSeed, long firstGame, long games) {
+        return gameFingerprint + " " + fingerprint(ai1) + " " + fingerprint(ai2) + " " + fingerprint(rules)
+                + " " + matchupSeed + " " + firstGame + " " + games;
+    }
+
+    /**
+     * Looks up the result of a chunk of games, marking it as used.
+     * @param key key of the chunk, from key().
+     * @return games won by the AI in seat 1, or -1 if the chunk isn't in the cache.
+     */
+    synchronized long get(String key) {
+        Long wins = entries.get(key);
+        if (wins == null) {
+            misses++;
+            return -1;
+        }
+        hits++;
+        return wins;
+    }
+
+    /**
+     * Stores the result of a chunk of games, forgetting the least recently used chunk if the cache is full.
+     * @param key key of the chunk, from key().
+     * @param wins games won by the AI in seat 1.
+     */
+    synchronized void put(String key, long wins) {
+        entries.put(key, wins);
+    }
+
+    /**
+     * Writes the cache to its file, replacing the old one in one step.
+     * @throws IOException if the file can't be written.
+     */
+    public synchronized void save() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        // Least recently used first, so reading the file back keeps the order
+        for (Map.Entry<String, Long> entry : entries.entrySet()) {
+            lines.add(entry.getKey() + " " + entry.getValue());
+        }
+        TournamentCheckpoint.writeAtomically(file, lines);
+    }
+
+    /**
+     * Gets the number of chunks in the cache.
+     * @return number of chunks.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of lookups that found a result since the cache was created.
+     * @return number of hits.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that found nothing since the cache was created.
+     * @return number of misses.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the fingerprint of an AI: its class files and its toString.
+     * @param ai the AI.
+     * @return fingerprint of the AI.
+     */
+    private String fingerprint(AI ai) {
+        String classes = classFingerprints.get(ai.getClass());
+        if (classes == null) {
+            List<Class<?>> chain = new ArrayList<>();
+            for (Class<?> type = ai.getClass(); AI.class.isAssignableFrom(type); type = type.getSuperclass()) {
+                chain.add(type);
+            }
+            classes = fingerprint(chain.toArray(new Class<?>[0]));
+            classFingerprints.put(ai.getClass(), classes);
+        }
+        return hash(classes + " " + ai);
+    }
+
+    /**
+     * Gets a number identifying an AI by its class name and its toString. Unlike the fingerprint it
+     * doesn't change when the class is recompiled, which moves the line numbers in its class file.
+     * @param ai the AI.
+     * @return the first 64 bits of the hash of its class name and toString.
+     */
+    static long identity(AI ai) {
+        return Long.parseUnsignedLong(hash(ai.getClass().getName() + " " + ai), 16);
+    }
+
+    /**
+     * Gets the fingerprint of a rule set: its settings and every mask of its play table. Play
+     * rules are lambdas without a useful toString, so only the masks tell them apart.
+     * @param rules the rules.
+     * @return fingerprint of the rules.
+     */
+    static String fingerprint(RuleSet rules) {
+        StringBuilder text = new StringBuilder(rules.toString());
+        for (int top = 0; top < Card.NUM_CODES; top++) {
+            text.append(' ').append(rules.getTable().playableOn(top));
+        }
+        return hash(text.toString());
+    }
+
+    /**
+     * Hashes the class files of some classes and of all classes nested in them.
+     * @param types the classes.
+     * @return fingerprint of their code.
+     */
+    private static String fingerprint(Class<?>[] types) {
+        MessageDigest digest = sha256();
+        for (Class<?> type : types) {
+            addClass(digest, type);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Adds the class file of a class and of its nested classes to a digest. A class whose file
+     * can't be found adds its name only.
+     * @param digest the digest.
+     * @param type the class.
+     */
+    private static void addClass(MessageDigest digest, Class<?> type) {
+        digest.update(type.getName().getBytes(StandardCharsets.UTF_8));
+        String name = type.getName().substring(type.getName().lastIndexOf('.') + 1) + ".class";
+        try (InputStream in = type.getResourceAsStream(name)) {
+            if (in != null) {
+                digest.update(in.readAllBytes());
+            }
+        } catch (IOException e) {
+            // The name is still part of the fingerprint
+        }
+        for (Class<?> nested : type.getDeclaredClasses()) {
+            addClass(digest, nested);
+        }
+    }
+
+    /**
+     * Hashes a text.
+     * @param text the text.
+     * @return the first 16 hex digits of its SHA-256.
+     */
+    private static String hash(String text) {
+        return toHex(sha256().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Creates a SHA-256 digest, which every Java runtime has.
+     * @return the digest.
+     */
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes the first 8 bytes of a hash as hex digits, which is plenty to tell strategies apart.
+     * @param hash the hash.
+     * @return 16 hex digits.
+     */
+    private static String toHex(byte[] hash) {
+        StringBuilder hex = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            hex.append(String.format("%02x", hash[i]));
+        }
+        return hex.toString();
+    }
+}
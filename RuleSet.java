@@ -0,0 +1,187 @@
+package student;
+
+/**
+ * The rules of an Uno War variant: the number of cards in a hand, the number of rounds needed to
+ * win a game, the cards in the deck and which cards may be played on which top card.
+ * Everything is worked out once when the rule set is made: the play rule is compiled into a
+ * PlayTable and the deck into its starting order of card codes, so a match with these rules
+ * runs the same lookups as the standard game and is just as fast.
+ * The deck holds every card of the ranks between lowestRank and highestRank in all four suits,
+ * as many times as there are decks.
+ */
+public final class RuleSet {
+
+    /**
+     * Largest number of decks shuffled together.
+     */
+    public static final int MAX_DECKS = 8;
+
+    /**
+     * The standard Uno War rules: hands of 5 cards, 10 rounds to win, one 52-card deck and the
+     * standard play rule.
+     */
+    public static final RuleSet STANDARD = new RuleSet(5, 10, 1, 1, 13, PlayRule.STANDARD);
+
+    /**
+     * Number of cards in each hand.
+     */
+    private final int handSize;
+
+    /**
+     * Number of rounds a player needs to win the game.
+     */
+    private final int roundsToWin;
+
+    /**
+     * Number of decks shuffled together.
+     */
+    private final int decks;
+
+    /**
+     * Lowest rank in the deck.
+     */
+    private final int lowestRank;
+
+    /**
+     * Highest rank in the deck.
+     */
+    private final int highestRank;
+
+    /**
+     * Table the play rule was compiled into.
+     */
+    private final PlayTable table;
+
+    /**
+     * Codes of the cards in the deck before its first shuffle.
+     */
+    private final byte[] deck;
+
+    /**
+     * Creates a rule set.
+     * @param handSize number of cards in each hand, at least 1.
+     * @param roundsToWin number of rounds a player needs to win the game, at least 1.
+     * @param decks number of decks shuffled together, between 1 and MAX_DECKS.
+     * @param lowestRank lowest rank in the deck, from 1 (ace) to 13 (king).
+     * @param highestRank highest rank in the deck, from lowestRank to 13.
+     * @param rule rule deciding which cards may be played on which top card.
+     * @throws IllegalArgumentException if a setting is out of range or the deck can't deal both hands.
+     */
+    public RuleSet(int handSize, int roundsToWin, int decks, int lowestRank, int highestRank, PlayRule rule) {
+        if (roundsToWin < 1) {
+            throw new IllegalArgumentException("roundsToWin must be at least 1: " + roundsToWin);
+        }
+        if (decks < 1 || decks > MAX_DECKS) {
+            throw new IllegalArgumentException("decks must be between 1 and " + MAX_DECKS + ": " + decks);
+        }
+        if (lowestRank < 1 || highestRank > 13 || lowestRank > highestRank) {
+            throw new IllegalArgumentException("Invalid ranks: " + lowestRank + " to " + highestRank);
+        }
+        int deckSize = decks * 4 * (highestRank - lowestRank + 1);
+        // Both hands and the first top card are dealt from one shuffle
+        if (handSize < 1 || 2 * handSize >= deckSize) {
+            throw new IllegalArgumentException("Invalid hand size for a deck of " + deckSize + ": " + handSize);
+        }
+        this.handSize = handSize;
+        this.roundsToWin = roundsToWin;
+        this.decks = decks;
+        this.lowestRank = lowestRank;
+        this.highestRank = highestRank;
+        this.table = rule == PlayRule.STANDARD ? PlayTable.STANDARD : new PlayTable(rule);
+
+        // Same order as the standard deck: suit by suit, then rank by rank, one deck after the other
+        this.deck = new byte[deckSize];
+        int index = 0;
+        for (int copy = 0; copy < decks; copy++) {
+            for (int suit = 1; suit <= 4; suit++) {
+                for (int rank = lowestRank; rank <= highestRank; rank++) {
+                    deck[index++] = (byte) Card.codeOf(rank, suit);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of cards in each hand.
+     * @return hand size.
+     */
+    public int getHandSize() {
+        return handSize;
+    }
+
+    /**
+     * Gets the number of rounds a player needs to win the game.
+     * @return rounds to win.
+     */
+    public int getRoundsToWin() {
+        return roundsToWin;
+    }
+
+    /**
+     * Gets the number of decks shuffled together.
+     * @return number of decks.
+     */
+    public int getDecks() {
+        return decks;
+    }
+
+    /**
+     * Gets the lowest rank in the deck.
+     * @return lowest rank.
+     */
+    public int getLowestRank() {
+        return lowestRank;
+    }
+
+    /**
+     * Gets the highest rank in the deck.
+     * @return highest rank.
+     */
+    public int getHighestRank() {
+        return highestRank;
+    }
+
+    /**
+     * Gets the number of cards in the deck.
+     * @return deck size.
+     */
+    public int getDeckSize() {
+        return deck.length;
+    }
+
+    /**
+     * Gets the table the play rule was compiled into.
+     * @return the play table.
+     */
+    public PlayTable getTable() {
+        return table;
+    }
+
+    /**
+     * Copies the codes of the cards of the deck, in their order before the first shuffle, into an array.
+     * @param into array to copy into.
+     * @param offset index of into where the first card goes.
+     */
+    void copyDeck(byte[] into, int offset) {
+        System.arraycopy(deck, 0, into, offset, deck.length);
+    }
+
+    /**
+     * Determines if these rules play exactly like the standard ones.
+     * @return true if every setting and the play table are the standard ones.
+     */
+    public boolean isStandard() {
+        return handSize == 5 && roundsToWin == 10 && decks == 1 && lowestRank == 1 && highestRank == 13
+                && table.equals(PlayTable.STANDARD);
+    }
+
+    /**
+     * Describes the settings of the rules. The play rule itself can't be described.
+     * @return description of the rules.
+     */
+    @Override
+    public String toString() {
+        return handSize + " cards, " + roundsToWin + " rounds, " + decks + " deck(s) of ranks "
+                + lowestRank + " to " + highestRank;
+    }
+}
@@ -0,0 +1,346 @@
+package student;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Micro-benchmarks for the classes on the simulation hot path: Deck, Hand, CardPile, the AI
+ * strategies and whole UnoWarMatch games. Like JMH, every benchmark is warmed up before it is
+ * measured over several timed iterations, results are consumed so the JIT can't drop them, and
+ * for each benchmark it reports throughput (ops/s) and allocation per operation (B/op, the same
+ * number JMH's GC profiler reports as gc.alloc.rate.norm).
+ * Usage: SimulationBenchmark [filter] [baseline file] [allowed slowdown, default 0.10].
+ * Only benchmarks whose name contains the filter are run. When a baseline file (the saved output
+ * of an earlier run) is given, the run fails with exit code 1 if any benchmark got slower than the
+ * allowed fraction, so changes can be gated on measured throughput.
+ * Whole games reuse their deck, hands and pile, so the game benchmarks must not allocate at all:
+ * the run also fails if one of them allocates a whole object per game, baseline or not.
+ */
+public class SimulationBenchmark {
+
+    /**
+     * Number of warmup iterations run before measuring.
+     */
+    private static final int WARMUP_ITERATIONS = 3;
+
+    /**
+     * Number of measured iterations.
+     */
+    private static final int MEASURE_ITERATIONS = 5;
+
+    /**
+     * Length of each iteration in nanoseconds.
+     */
+    private static final long ITERATION_NANOS = 300_000_000L;
+
+    /**
+     * Number of operations run between two reads of the clock.
+     */
+    private static final int BATCH = 256;
+
+    /**
+     * Bytes per operation from which a benchmark that shouldn't allocate counts as allocating,
+     * the size of the smallest object. Below that are only the JVM's own allocations, spread over
+     * millions of operations.
+     */
+    private static final double GARBAGE_BYTES = 8;
+
+    /**
+     * Seed every benchmark's state is built from.
+     */
+    private static final long SEED = 2024;
+
+    /**
+     * Sink for benchmark results, so the JIT can't remove the work that produced them.
+     */
+    private static volatile long sink;
+
+    /**
+     * One operation being benchmarked.
+     */
+    @FunctionalInterface
+    interface Operation {
+
+        /**
+         * Runs the operation once.
+         * @return any value that depends on the work done.
+         */
+        long run();
+    }
+
+    /**
+     * Name and operation of one benchmark.
+     */
+    private static final class Benchmark {
+
+        /**
+         * Name printed in the results.
+         */
+        private final String name;
+
+        /**
+         * Operation being measured.
+         */
+        private final Operation operation;
+
+        /**
+         * Whether the operation must run without allocating anything.
+         */
+        private final boolean garbageFree;
+
+        /**
+         * Creates a benchmark that may allocate.
+         * @param name name printed in the results.
+         * @param operation operation being measured.
+         */
+        Benchmark(String name, Operation operation) {
+            this(name, operation, false);
+        }
+
+        /**
+         * Creates a benchmark.
+         * @param name name printed in the results.
+         * @param operation operation being measured.
+         * @param garbageFree whether the operation must run without allocating anything.
+         */
+        Benchmark(String name, Operation operation, boolean garbageFree) {
+            this.name = name;
+            this.operation = operation;
+            this.garbageFree = garbageFree;
+        }
+    }
+
+    /**
+     * Runs the benchmarks and prints one line per benchmark: name, ops/s and B/op.
+     * @param args optional filter, baseline file and allowed slowdown.
+     * @throws IOException if the baseline file can't be read.
+     */
+    public static void main(String[] args) throws IOException {
+        String filter = args.length > 0 ? args[0] : "";
+        Map<String, Double> baseline = args.length > 1 ? readBaseline(Paths.get(args[1])) : new HashMap<>();
+        double allowedSlowdown = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+
+        boolean regressed = false;
+        for (Benchmark benchmark : benchmarks()) {
+            if (!benchmark.name.contains(filter)) {
+                continue;
+            }
+            double[] result = measure(benchmark.operation);
+            System.out.printf("%-44s %14.1f ops/s %10.1f B/op%n", benchmark.name, result[0], result[1]);
+
+            // Compare with the saved run, if there is one for this benchmark
+            Double before = baseline.get(benchmark.name);
+            if (before != null && result[0] < before * (1 - allowedSlowdown)) {
+                System.out.printf("REGRESSION %s: %.1f ops/s, was %.1f ops/s%n", benchmark.name, result[0], before);
+                regressed = true;
+            }
+            if (benchmark.garbageFree && result[1] >= GARBAGE_BYTES) {
+                System.out.printf("GARBAGE %s: %.1f B/op, should allocate nothing%n", benchmark.name, result[1]);
+                regressed = true;
+            }
+        }
+        if (regressed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Builds the list of benchmarks, each with its own state.
+     * @return the benchmarks.
+     */
+    private static List<Benchmark> benchmarks() {
+        List<Benchmark> list = new ArrayList<>();
+
+        Deck drawDeck = new Deck(new SplitMixRandom(SEED));
+        list.add(new Benchmark("Deck.draw", () -> drawDeck.draw().getCode()));
+
+        Deck shuffleDeck = new Deck(new SplitMixRandom(SEED));
+        list.add(new Benchmark("Deck.shuffle", () -> {
+            shuffleDeck.shuffle();
+            return shuffleDeck.cardsRemaining();
+        }));
+
+        // Dealing a game's hands and first pile card from a reset deck only shuffles the cards drawn
+        SplitMixRandom dealRandom = new SplitMixRandom(SEED);
+        Deck dealDeck = new Deck(dealRandom);
+        long[] dealGame = new long[1];
+        list.add(new Benchmark("Deck.reset + deal", () -> {
+            dealRandom.setSeed(SplitMixRandom.seedFor(SEED, dealGame[0]++));
+            dealDeck.reset();
+            int codes = 0;
+            for (int i = 0; i < 11; i++) {
+                codes += dealDeck.drawCode();
+            }
+            return codes;
+        }));
+
+        Hand removeHand = new Hand(new Deck(new SplitMixRandom(SEED)), 5);
+        list.add(new Benchmark("Hand.remove", () -> removeHand.remove(removeHand.get(0)) ? 1 : 0));
+
+        CardPile pile = new CardPile(Card.of(7, 2));
+        int[] nextCode = new int[1];
+        list.add(new Benchmark("CardPile.canPlay", () -> {
+            nextCode[0] = (nextCode[0] + 1) % Card.NUM_CODES;
+            return pile.canPlay(Card.fromCode(nextCode[0])) ? 1 : 0;
+        }));
+
+        GameState state = new GameState();
+        GameState branch = new GameState();
+        state.deal(SEED, 0);
+        list.add(new Benchmark("GameState.copyInto", () -> {
+            state.copyInto(branch);
+            return branch.getTopCode();
+        }));
+        list.add(new Benchmark("GameState.play+undo", () -> {
+            long playable = state.playableMask();
+            if (playable == 0) {
+                state.endRound();
+            } else {
+                state.play(Long.numberOfTrailingZeros(playable));
+            }
+            state.undo();
+            return state.getPileSize();
+        }));
+
+        AI[] ais = {new AI(), new SmallestCardAI(), new BiggestCardAI()};
+        Deck aiDeck = new Deck(new SplitMixRandom(SEED));
+        Hand aiHand = new Hand(aiDeck, 5);
+        CardPile aiPile = new CardPile(aiDeck.draw());
+        for (AI ai : ais) {
+            list.add(new Benchmark(ai.getClass().getSimpleName() + ".getPlay", () -> {
+                Card play = ai.getPlay(aiHand, aiPile);
+                return play == null ? 0 : play.getCode();
+            }));
+        }
+
+        for (AI ai1 : ais) {
+            for (AI ai2 : ais) {
+                UnoWarMatch match = new UnoWarMatch(ai1, ai2, SEED);
+                String name = "playGame " + ai1.getClass().getSimpleName() + "-" + ai2.getClass().getSimpleName();
+                list.add(new Benchmark(name, () -> match.playGame() ? 1 : 0, true));
+
+                // The batch kernel plays the same games; one operation is one game here too
+                BatchSimulator batch = new BatchSimulator(ai1, ai2, SEED, BATCH);
+                long[] nextGame = new long[1];
+                int[] left = new int[1];
+                String batchName = "batch " + ai1.getClass().getSimpleName() + "-" + ai2.getClass().getSimpleName();
+                list.add(new Benchmark(batchName, () -> {
+                    // Play BATCH games at once on every BATCH-th call, and count one game per call
+                    if (left[0] == 0) {
+                        sink += batch.wins(nextGame[0], BATCH);
+                        nextGame[0] += BATCH;
+                        left[0] = BATCH;
+                    }
+                    left[0]--;
+                    return left[0];
+                }));
+            }
+        }
+
+        // A variant runs the same lookups as the standard game, only with other tables and sizes
+        RuleSet variant = new RuleSet(7, 5, 2, 1, 13, PlayRule.STANDARD);
+        UnoWarMatch variantMatch = new UnoWarMatch(new AI(), new SmallestCardAI(), SEED, variant);
+        list.add(new Benchmark("playGame AI-SmallestCardAI, 7 cards 2 decks", () -> variantMatch.playGame() ? 1 : 0,
+                true));
+        BatchSimulator variantBatch = new BatchSimulator(new AI(), new SmallestCardAI(), SEED, BATCH, variant);
+        long[] variantGame = new long[1];
+        int[] variantLeft = new int[1];
+        list.add(new Benchmark("batch AI-SmallestCardAI, 7 cards 2 decks", () -> {
+            if (variantLeft[0] == 0) {
+                sink += variantBatch.wins(variantGame[0], BATCH);
+                variantGame[0] += BATCH;
+                variantLeft[0] = BATCH;
+            }
+            variantLeft[0]--;
+            return variantLeft[0];
+        }));
+
+        // One operation is one game; multiply by the seats to compare the work per seat
+        List<AI> sixSeats = List.of(new AI(), new SmallestCardAI(), new BiggestCardAI(),
+                new AI(), new SmallestCardAI(), new BiggestCardAI());
+        for (int seats : new int[] {2, 6}) {
+            MultiSeatMatch table = new MultiSeatMatch(sixSeats.subList(0, seats), SEED);
+            long[] tableGame = new long[1];
+            list.add(new Benchmark("MultiSeatMatch " + seats + " seats", () -> table.playGame(tableGame[0]++), true));
+        }
+        return list;
+    }
+
+    /**
+     * Warms up and then measures one operation.
+     * @param operation operation to measure.
+     * @return throughput in operations per second and bytes allocated per operation.
+     */
+    private static double[] measure(Operation operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            runIteration(operation);
+        }
+        double ops = 0;
+        double nanos = 0;
+        double bytes = 0;
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            double[] iteration = runIteration(operation);
+            ops += iteration[0];
+            nanos += iteration[1];
+            bytes += iteration[2];
+        }
+        return new double[] {ops / nanos * 1e9, bytes / ops};
+    }
+
+    /**
+     * Runs an operation in batches until one iteration's time is used up.
+     * @param operation operation to run.
+     * @return number of operations, nanoseconds taken and bytes allocated.
+     */
+    private static double[] runIteration(Operation operation) {
+        long result = 0;
+        long ops = 0;
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < BATCH; i++) {
+                result += operation.run();
+            }
+            ops += BATCH;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        long allocated = allocatedBytes() - allocatedBefore;
+        sink = result;
+        return new double[] {ops, elapsed, allocated};
+    }
+
+    /**
+     * Gets the number of bytes the current thread has allocated so far, or 0 if the JVM can't tell.
+     * @return bytes allocated by this thread.
+     */
+    static long allocatedBytes() {
+        return SimulationMetrics.currentThreadAllocatedBytes();
+    }
+
+    /**
+     * Reads the ops/s of every benchmark from the saved output of an earlier run.
+     * @param file saved output.
+     * @return ops/s by benchmark name.
+     * @throws IOException if the file can't be read.
+     */
+    private static Map<String, Double> readBaseline(Path file) throws IOException {
+        Map<String, Double> baseline = new HashMap<>();
+        for (String line : Files.readAllLines(file)) {
+            int end = line.indexOf(" ops/s");
+            if (end < 0 || line.startsWith("REGRESSION")) {
+                continue;
+            }
+            // The number right before "ops/s" is the throughput, everything before it is the name
+            String head = line.substring(0, end).trim();
+            int split = head.lastIndexOf(' ');
+            baseline.put(head.substring(0, split).trim(), Double.parseDouble(head.substring(split + 1)));
+        }
+        return baseline;
+    }
+}
@@ -0,0 +1,431 @@
+package student;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Live counters of a running simulation: games, rounds, plays, deck reshuffles, bytes allocated
+ * and a getPlay latency histogram per strategy. The counters are LongAdders, which spread updates
+ * from different threads over separate cells, and every match counts into its own Recorder and
+ * only adds its counts to the shared counters once per game, so turning metrics on doesn't make
+ * parallel workers wait on each other.
+ * The counters can be read at any time, from this class, from JMX (see registerMBean) or from a
+ * MetricsReporter that prints them periodically.
+ */
+public class SimulationMetrics implements SimulationMetricsMBean {
+
+    /**
+     * Number of latency buckets. Bucket b counts calls that took from 2^(b-1) up to 2^b nanoseconds.
+     */
+    static final int LATENCY_BUCKETS = 40;
+
+    /**
+     * One getPlay call in this many is timed. Reading the clock costs about as much as a simple
+     * AI's whole getPlay, so timing every call would slow the run down several times.
+     */
+    static final int LATENCY_SAMPLE_INTERVAL = 16;
+
+    /**
+     * Largest number of games measured with one pair of allocation readings. Reading the thread's
+     * allocation costs about a microsecond, so it isn't read around every game.
+     */
+    static final int ALLOCATION_SAMPLE_GAMES = 32;
+
+    /**
+     * Time the metrics were created, in System.nanoTime() units.
+     */
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * Number of games played.
+     */
+    private final LongAdder games = new LongAdder();
+
+    /**
+     * Number of rounds played.
+     */
+    private final LongAdder rounds = new LongAdder();
+
+    /**
+     * Number of cards played.
+     */
+    private final LongAdder plays = new LongAdder();
+
+    /**
+     * Number of deck reshuffles during games.
+     */
+    private final LongAdder reshuffles = new LongAdder();
+
+    /**
+     * Number of bytes allocated by the simulating threads while playing games.
+     */
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    /**
+     * Number of games whose allocation was measured.
+     */
+    private final LongAdder measuredGames = new LongAdder();
+
+    /**
+     * getPlay latency histogram of every strategy, by strategy name.
+     */
+    private final Map<String, LongAdder[]> latencies = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a recorder for one match. A recorder is used by one thread at a time.
+     * @param strategy1 name of the strategy in seat 1.
+     * @param strategy2 name of the strategy in seat 2.
+     * @return a new recorder.
+     */
+    public Recorder newRecorder(String strategy1, String strategy2) {
+        return new Recorder(histogram(strategy1), histogram(strategy2));
+    }
+
+    /**
+     * Adds the counts of games played without a recorder, such as by the batch kernel.
+     * @param gameCount number of games.
+     * @param roundCount number of rounds.
+     * @param playCount number of cards played.
+     * @param reshuffleCount number of deck reshuffles.
+     * @param bytes number of bytes allocated while playing the games.
+     */
+    public void addGames(long gameCount, long roundCount, long playCount, long reshuffleCount, long bytes) {
+        addGames(gameCount, roundCount, playCount, reshuffleCount);
+        addAllocation(gameCount, bytes);
+    }
+
+    /**
+     * Adds the counts of games played.
+     * @param gameCount number of games.
+     * @param roundCount number of rounds.
+     * @param playCount number of cards played.
+     * @param reshuffleCount number of deck reshuffles.
+     */
+    private void addGames(long gameCount, long roundCount, long playCount, long reshuffleCount) {
+        games.add(gameCount);
+        rounds.add(roundCount);
+        plays.add(playCount);
+        reshuffles.add(reshuffleCount);
+    }
+
+    /**
+     * Adds the bytes allocated while playing some games.
+     * @param gameCount number of games measured.
+     * @param bytes number of bytes allocated.
+     */
+    private void addAllocation(long gameCount, long bytes) {
+        measuredGames.add(gameCount);
+        allocatedBytes.add(bytes);
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server.
+     * @param name value of the name key of the MBean's object name.
+     * @return the object name the metrics were registered under.
+     * @throws JMException if the MBean can't be registered, for example because the name is taken.
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName("student:type=SimulationMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Gets the histogram of a strategy, creating it the first time.
+     * @param strategy name of the strategy.
+     * @return latency buckets of the strategy.
+     */
+    private LongAdder[] histogram(String strategy) {
+        return latencies.computeIfAbsent(strategy, name -> {
+            LongAdder[] buckets = new LongAdder[LATENCY_BUCKETS];
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+            return buckets;
+        });
+    }
+
+    /**
+     * Gets the number of nanoseconds since the metrics were created.
+     * @return elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Gets the number of games played so far.
+     * @return number of games.
+     */
+    @Override
+    public long getGames() {
+        return games.sum();
+    }
+
+    /**
+     * Gets the number of games played per second since the metrics were created.
+     * @return games per second.
+     */
+    @Override
+    public double getGamesPerSecond() {
+        return games.sum() / (getElapsedNanos() / 1e9);
+    }
+
+    /**
+     * Gets the average number of rounds in a game.
+     * @return rounds per game.
+     */
+    @Override
+    public double getRoundsPerGame() {
+        return ratio(rounds.sum(), games.sum());
+    }
+
+    /**
+     * Gets the average number of cards played in a round.
+     * @return plays per round.
+     */
+    @Override
+    public double getPlaysPerRound() {
+        return ratio(plays.sum(), rounds.sum());
+    }
+
+    /**
+     * Gets the number of times a deck ran out and was reshuffled during a game.
+     * @return number of reshuffles.
+     */
+    @Override
+    public long getReshuffles() {
+        return reshuffles.sum();
+    }
+
+    /**
+     * Gets the average number of bytes allocated by the simulating threads per game.
+     * @return bytes per game.
+     */
+    @Override
+    public double getAllocatedBytesPerGame() {
+        return ratio(allocatedBytes.sum(), measuredGames.sum());
+    }
+
+    /**
+     * Describes the getPlay latency of every strategy timed so far. Latencies are measured in
+     * power-of-two buckets, so each percentile is given as the bucket it falls under, and only
+     * one call in LATENCY_SAMPLE_INTERVAL is timed, so the call counts are of timed calls.
+     * @return one line per strategy with its number of calls and latency percentiles.
+     */
+    @Override
+    public String[] getPlayLatencies() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, LongAdder[]> entry : latencies.entrySet()) {
+            long[] counts = new long[LATENCY_BUCKETS];
+            long calls = 0;
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                counts[i] = entry.getValue()[i].sum();
+                calls += counts[i];
+            }
+            if (calls > 0) {
+                lines.add(String.format("%s: %d timed calls, p50 < %d ns, p99 < %d ns, max < %d ns", entry.getKey(),
+                        calls, percentile(counts, calls, 0.50), percentile(counts, calls, 0.99),
+                        percentile(counts, calls, 1.0)));
+            }
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    /**
+     * Finds the bucket a percentile of the calls falls in.
+     * @param counts number of calls in every bucket.
+     * @param calls total number of calls.
+     * @param fraction the percentile, between 0 and 1.
+     * @return upper end of the bucket in nanoseconds.
+     */
+    private static long percentile(long[] counts, long calls, double fraction) {
+        long needed = (long) Math.ceil(calls * fraction);
+        long seen = 0;
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= needed) {
+                return 1L << i;
+            }
+        }
+        return 1L << (LATENCY_BUCKETS - 1);
+    }
+
+    /**
+     * Divides two counts, giving 0 when there is nothing to divide by.
+     * @param count numerator.
+     * @param per denominator.
+     * @return count / per, or 0.
+     */
+    private static double ratio(long count, long per) {
+        return per == 0 ? 0 : count / (double) per;
+    }
+
+    /**
+     * Gets the number of bytes the current thread has allocated so far, or 0 if the JVM can't tell.
+     * @return bytes allocated by this thread.
+     */
+    static long currentThreadAllocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    /**
+     * Counts the games of one match in plain fields and adds them to the shared counters at the
+     * end of every game. It is only ever used by the thread playing the match.
+     */
+    public final class Recorder {
+
+        /**
+         * Latency buckets of seat 1's strategy in the shared histograms.
+         */
+        private final LongAdder[] shared1;
+
+        /**
+         * Latency buckets of seat 2's strategy in the shared histograms.
+         */
+        private final LongAdder[] shared2;
+
+        /**
+         * Latency counts of seat 1 in the current game.
+         */
+        private final long[] latencies1 = new long[LATENCY_BUCKETS];
+
+        /**
+         * Latency counts of seat 2 in the current game.
+         */
+        private final long[] latencies2 = new long[LATENCY_BUCKETS];
+
+        /**
+         * Number of getPlay calls left until the next one that is timed.
+         */
+        private int untilTimed = LATENCY_SAMPLE_INTERVAL;
+
+        /**
+         * Rounds played in the current game.
+         */
+        private long gameRounds;
+
+        /**
+         * Cards played in the current game.
+         */
+        private long gamePlays;
+
+        /**
+         * Bytes the thread had allocated when the first game since the last reading started.
+         */
+        private long allocatedAtStart;
+
+        /**
+         * Number of games ended since the allocation was last read.
+         */
+        private int unmeasuredGames;
+
+        /**
+         * Creates a recorder.
+         * @param shared1 latency buckets of seat 1's strategy.
+         * @param shared2 latency buckets of seat 2's strategy.
+         */
+        private Recorder(LongAdder[] shared1, LongAdder[] shared2) {
+            this.shared1 = shared1;
+            this.shared2 = shared2;
+        }
+
+        /**
+         * Starts counting a game.
+         */
+        public void gameStarted() {
+            gameRounds = 0;
+            gamePlays = 0;
+            if (unmeasuredGames == 0) {
+                allocatedAtStart = currentThreadAllocatedBytes();
+            }
+        }
+
+        /**
+         * Counts a round.
+         */
+        public void roundPlayed() {
+            gameRounds++;
+        }
+
+        /**
+         * Determines if the next getPlay call should be timed, which is one call in
+         * LATENCY_SAMPLE_INTERVAL. The calls that aren't timed are counted with choiceMade(boolean).
+         * @return true if the next call should be timed.
+         */
+        public boolean timeNextChoice() {
+            if (--untilTimed > 0) {
+                return false;
+            }
+            untilTimed = LATENCY_SAMPLE_INTERVAL;
+            return true;
+        }
+
+        /**
+         * Counts one getPlay call that wasn't timed.
+         * @param played true if a card was played, false if the player was stuck.
+         */
+        public void choiceMade(boolean played) {
+            if (played) {
+                gamePlays++;
+            }
+        }
+
+        /**
+         * Counts one timed getPlay call.
+         * @param player seat of the player asked, 1 or 2.
+         * @param nanos time the call took.
+         * @param played true if a card was played, false if the player was stuck.
+         */
+        public void choiceMade(int player, long nanos, boolean played) {
+            int bucket = Math.min(LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+            if (player == 1) {
+                latencies1[bucket]++;
+            } else {
+                latencies2[bucket]++;
+            }
+            if (played) {
+                gamePlays++;
+            }
+        }
+
+        /**
+         * Adds the counts of the game that just ended to the shared counters.
+         * @param gameReshuffles number of times the deck was reshuffled during the game.
+         */
+        public void gameEnded(long gameReshuffles) {
+            addGames(1, gameRounds, gamePlays, gameReshuffles);
+            // Allocation is read around a run of games; games left unread when the recorder is
+            // dropped are simply not part of the average
+            if (++unmeasuredGames == ALLOCATION_SAMPLE_GAMES) {
+                addAllocation(unmeasuredGames, currentThreadAllocatedBytes() - allocatedAtStart);
+                unmeasuredGames = 0;
+            }
+            flush(latencies1, shared1);
+            flush(latencies2, shared2);
+        }
+
+        /**
+         * Adds local latency counts to a shared histogram and clears them.
+         * @param local counts of the current game.
+         * @param shared shared histogram.
+         */
+        private void flush(long[] local, LongAdder[] shared) {
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                if (local[i] != 0) {
+                    shared[i].add(local[i]);
+                    local[i] = 0;
+                }
+            }
+        }
+    }
+}
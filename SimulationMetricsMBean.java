@@ -0,0 +1,50 @@
+package student;
+
+/**
+ * Management interface of SimulationMetrics, so a running simulation can be watched from JMX
+ * tools such as jconsole or VisualVM.
+ */
+public interface SimulationMetricsMBean {
+
+    /**
+     * Gets the number of games played so far.
+     * @return number of games.
+     */
+    long getGames();
+
+    /**
+     * Gets the number of games played per second since the metrics were created.
+     * @return games per second.
+     */
+    double getGamesPerSecond();
+
+    /**
+     * Gets the average number of rounds in a game.
+     * @return rounds per game.
+     */
+    double getRoundsPerGame();
+
+    /**
+     * Gets the average number of cards played in a round.
+     * @return plays per round.
+     */
+    double getPlaysPerRound();
+
+    /**
+     * Gets the number of times a deck ran out and was reshuffled during a game.
+     * @return number of reshuffles.
+     */
+    long getReshuffles();
+
+    /**
+     * Gets the average number of bytes allocated by the simulating threads per game.
+     * @return bytes per game.
+     */
+    double getAllocatedBytesPerGame();
+
+    /**
+     * Describes the getPlay latency of every strategy timed so far. Only a sample of the calls is timed.
+     * @return one line per strategy with its number of timed calls and latency percentiles.
+     */
+    String[] getPlayLatencies();
+}
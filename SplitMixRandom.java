@@ -0,0 +1,146 @@
+package student;
+import java.util.random.RandomGenerator;
+
+/**
+ * A small, fast random number generator using the SplitMix64 algorithm, the same one
+ * java.util.SplittableRandom is built on. Unlike SplittableRandom or Random it can be
+ * reseeded in place, so a match can give every game its own seed without creating a new
+ * generator, and it keeps no shared atomic state, so each thread should simply own one.
+ */
+public final class SplitMixRandom implements RandomGenerator {
+
+    /**
+     * Odd constant added to the state on every step (the golden ratio in fixed point).
+     */
+    private static final long GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Bounds below this one are reduced with a multiplication instead of a division.
+     */
+    private static final int FAST_BOUNDS = 64;
+
+    /**
+     * For every bound below FAST_BOUNDS, the multiplier m and shift s for which
+     * (u * m) >>> s equals u / bound for every u below 2^31.
+     */
+    private static final long[] DIVIDE_MULTIPLIERS = new long[FAST_BOUNDS];
+
+    /**
+     * Shifts that go with DIVIDE_MULTIPLIERS.
+     */
+    private static final int[] DIVIDE_SHIFTS = new int[FAST_BOUNDS];
+
+    static {
+        // Division by a constant as a multiplication (Granlund and Montgomery): with a shift of
+        // 31 + ceil(log2(bound)) bits and the multiplier rounded up, the quotient is exact for
+        // every 31-bit u, and u * m still fits in 63 bits
+        for (int bound = 1; bound < FAST_BOUNDS; bound++) {
+            int shift = 31 + (32 - Integer.numberOfLeadingZeros(bound - 1));
+            DIVIDE_SHIFTS[bound] = shift;
+            DIVIDE_MULTIPLIERS[bound] = ((1L << shift) + bound - 1) / bound;
+        }
+    }
+
+    /**
+     * Current state of the generator.
+     */
+    private long state;
+
+    /**
+     * Creates a generator with a seed taken from the system clock.
+     */
+    public SplitMixRandom() {
+        this(mix(System.nanoTime()));
+    }
+
+    /**
+     * Creates a generator with the given seed.
+     * @param seed the seed.
+     */
+    public SplitMixRandom(long seed) {
+        this.state = seed;
+    }
+
+    /**
+     * Restarts the generator from the given seed, so it repeats the numbers it gave after that seed.
+     * @param seed the seed.
+     */
+    public void setSeed(long seed) {
+        this.state = seed;
+    }
+
+    /**
+     * Gets the current state of the generator. Passing it to setSeed makes the generator give
+     * the same numbers from then on as it would have given from now.
+     * @return state of the generator.
+     */
+    long getState() {
+        return state;
+    }
+
+    /**
+     * Gets the next random long.
+     * @return the next random long.
+     */
+    @Override
+    public long nextLong() {
+        state += GAMMA;
+        return mix(state);
+    }
+
+    /**
+     * Gets a random int from 0 up to but not including bound. It gives exactly the numbers the
+     * default RandomGenerator.nextInt(int) would, rejecting the same over-represented values, but
+     * small bounds like the ones a deck shuffle uses are reduced without a slow division.
+     * @param bound the upper bound, at least 1.
+     * @return a random int between 0 and bound - 1.
+     */
+    @Override
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        int m = bound - 1;
+        int r = nextInt();
+        if ((bound & m) == 0) {
+            // The bound is a power of 2
+            return r & m;
+        }
+        if (bound < FAST_BOUNDS) {
+            long multiplier = DIVIDE_MULTIPLIERS[bound];
+            int shift = DIVIDE_SHIFTS[bound];
+            for (int u = r >>> 1;; u = nextInt() >>> 1) {
+                r = u - (int) ((u * multiplier) >>> shift) * bound;
+                if (u + m - r >= 0) {
+                    return r;
+                }
+            }
+        }
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = nextInt() >>> 1) {
+            // Reject the values of u that would make small results more likely
+        }
+        return r;
+    }
+
+    /**
+     * Derives the seed of one item of a numbered sequence, such as one game of a match.
+     * Every index gets an unrelated seed, and the result only depends on the two arguments.
+     * @param seed seed of the whole sequence.
+     * @param index position in the sequence.
+     * @return the seed for that position.
+     */
+    public static long seedFor(long seed, long index) {
+        return mix(seed + GAMMA * (index + 1));
+    }
+
+    /**
+     * Scrambles the bits of a long (the SplitMix64 finalizer).
+     * @param z value to scramble.
+     * @return scrambled value.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
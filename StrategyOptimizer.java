@@ -0,0 +1,248 @@
+package student;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Tunes the weights of a WeightedAI with a simple evolution strategy. Every generation samples
+ * candidates around the current mean weights, has all of them play the same games against a
+ * fixed set of opponents, and moves the mean to the average of the best quarter. The step size
+ * shrinks a little every generation.
+ * All candidates of a generation play the same game numbers of the same matchup seeds (common
+ * random numbers), so the differences between their scores come from their play and not from
+ * the deal; comparing candidates then needs far fewer games than comparing independent runs.
+ * Every generation plays new game numbers, so the weights don't fit one set of deals.
+ * Candidates are evaluated in parallel on a fork-join pool. The random numbers of the search are
+ * only drawn on the calling thread, so a run only depends on its seed.
+ */
+public class StrategyOptimizer {
+
+    /**
+     * Factor the step size is multiplied by after every generation.
+     */
+    private static final double STEP_DECAY = 0.9;
+
+    /**
+     * Opponents every candidate plays, in both seats.
+     */
+    private final List<AI> opponents;
+
+    /**
+     * Seed of the search, from which the matchup seeds and the samples are derived.
+     */
+    private final long seed;
+
+    /**
+     * Number of candidates per generation.
+     */
+    private final int populationSize;
+
+    /**
+     * Number of games per opponent and seat for every candidate.
+     */
+    private final int gamesPerMatchup;
+
+    /**
+     * Pool the evaluations run on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Generator the candidates are sampled with.
+     */
+    private final SplitMixRandom random;
+
+    /**
+     * Current mean weights.
+     */
+    private double[] mean = {0, 0, 0};
+
+    /**
+     * Current step size.
+     */
+    private double step = 1;
+
+    /**
+     * Number of generations played so far, which decides the game numbers of the next one.
+     */
+    private int generation;
+
+    /**
+     * Best candidate of the last generation.
+     */
+    private WeightedAI best;
+
+    /**
+     * Score of the best candidate of the last generation.
+     */
+    private double bestScore;
+
+    /**
+     * Creates an optimizer that runs on the common fork-join pool.
+     * @param opponents opponents every candidate plays, in both seats.
+     * @param seed seed of the search.
+     * @param populationSize number of candidates per generation, at least 4.
+     * @param gamesPerMatchup number of games per opponent and seat for every candidate, at least 1.
+     */
+    public StrategyOptimizer(List<AI> opponents, long seed, int populationSize, int gamesPerMatchup) {
+        this(opponents, seed, populationSize, gamesPerMatchup, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an optimizer.
+     * @param opponents opponents every candidate plays, in both seats.
+     * @param seed seed of the search.
+     * @param populationSize number of candidates per generation, at least 4.
+     * @param gamesPerMatchup number of games per opponent and seat for every candidate, at least 1.
+     * @param pool pool the evaluations run on.
+     */
+    public StrategyOptimizer(List<AI> opponents, long seed, int populationSize, int gamesPerMatchup,
+                             ForkJoinPool pool) {
+        if (opponents.isEmpty()) {
+            throw new IllegalArgumentException("At least one opponent is needed");
+        }
+        if (populationSize < 4) {
+            throw new IllegalArgumentException("populationSize must be at least 4: " + populationSize);
+        }
+        if (gamesPerMatchup < 1) {
+            throw new IllegalArgumentException("gamesPerMatchup must be at least 1: " + gamesPerMatchup);
+        }
+        this.opponents = new ArrayList<>(opponents);
+        this.seed = seed;
+        this.populationSize = populationSize;
+        this.gamesPerMatchup = gamesPerMatchup;
+        this.pool = pool;
+        this.random = new SplitMixRandom(seed);
+    }
+
+    /**
+     * Computes the share of games a strategy wins against the opponents, playing each of them
+     * in both seats on games firstGame to firstGame + gamesPerMatchup - 1.
+     * @param candidate the strategy.
+     * @param firstGame number of the first game of every matchup.
+     * @return share of the games won, between 0 and 1.
+     */
+    public double evaluate(AI candidate, long firstGame) {
+        long won = 0;
+        for (int i = 0; i < opponents.size(); i++) {
+            AI opponent = opponents.get(i);
+            // The matchup seeds only depend on the opponent and seat, so every candidate gets the same deals
+            won += TournamentScheduler.playChunk(candidate, opponent, SplitMixRandom.seedFor(seed, 2L * i),
+                    firstGame, gamesPerMatchup, RuleSet.STANDARD, null);
+            won += gamesPerMatchup - TournamentScheduler.playChunk(opponent, candidate,
+                    SplitMixRandom.seedFor(seed, 2L * i + 1), firstGame, gamesPerMatchup, RuleSet.STANDARD, null);
+        }
+        return won / (2.0 * gamesPerMatchup * opponents.size());
+    }
+
+    /**
+     * Plays one generation: samples the candidates, evaluates them on the same games and moves
+     * the mean to the average of the best quarter. The mean itself is one of the candidates.
+     * @return the best candidate of the generation.
+     */
+    public WeightedAI step() {
+        List<double[]> weights = new ArrayList<>();
+        weights.add(mean.clone());
+        while (weights.size() < populationSize) {
+            double[] sample = new double[WeightedAI.NUM_WEIGHTS];
+            for (int k = 0; k < sample.length; k++) {
+                sample[k] = mean[k] + step * random.nextGaussian();
+            }
+            weights.add(sample);
+        }
+
+        long firstGame = (long) generation * gamesPerMatchup;
+        List<ForkJoinTask<Double>> tasks = new ArrayList<>();
+        for (double[] candidate : weights) {
+            tasks.add(ForkJoinTask.adapt(() -> evaluate(new WeightedAI(candidate), firstGame)));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> {
+            ForkJoinTask.invokeAll(tasks);
+        }));
+
+        // Rank the candidates by score, best first; ties keep the sampling order
+        Integer[] order = new Integer[weights.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(tasks.get(b).join(), tasks.get(a).join()));
+
+        int parents = populationSize / 4;
+        double[] next = new double[WeightedAI.NUM_WEIGHTS];
+        for (int p = 0; p < parents; p++) {
+            for (int k = 0; k < next.length; k++) {
+                next[k] += weights.get(order[p])[k] / parents;
+            }
+        }
+        // Only the direction of the weights matters, so keep them at length 1
+        double length = 0;
+        for (double weight : next) {
+            length += weight * weight;
+        }
+        length = Math.sqrt(length);
+        for (int k = 0; k < next.length && length > 0; k++) {
+            next[k] /= length;
+        }
+
+        best = new WeightedAI(weights.get(order[0]));
+        bestScore = tasks.get(order[0]).join();
+        mean = next;
+        step *= STEP_DECAY;
+        generation++;
+        return best;
+    }
+
+    /**
+     * Plays a number of generations.
+     * @param generations number of generations.
+     * @return the best candidate of the last generation.
+     */
+    public WeightedAI optimize(int generations) {
+        for (int i = 0; i < generations; i++) {
+            step();
+        }
+        return best;
+    }
+
+    /**
+     * Gets the current mean weights.
+     * @return rank, suit match and suit kept weights.
+     */
+    public double[] getMean() {
+        return mean.clone();
+    }
+
+    /**
+     * Gets the score of the best candidate of the last generation, on that generation's games.
+     * @return share of the games it won.
+     */
+    public double getBestScore() {
+        return bestScore;
+    }
+
+    /**
+     * Tunes a WeightedAI against the three basic AIs, printing every generation, then plays the
+     * tuned weights against each of them on games none of the generations played.
+     * @param args optional number of generations, then an optional seed.
+     */
+    public static void main(String[] args) {
+        int generations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        System.out.printf("Seed: %d%n", seed);
+        List<AI> opponents = List.of(new AI(), new SmallestCardAI(), new BiggestCardAI());
+        StrategyOptimizer optimizer = new StrategyOptimizer(opponents, seed, 16, 200);
+        for (int i = 0; i < generations; i++) {
+            WeightedAI generationBest = optimizer.step();
+            System.out.printf("Generation %d: best %s scores %.3f%n", i + 1, generationBest, optimizer.getBestScore());
+        }
+
+        WeightedAI tuned = new WeightedAI(optimizer.getMean());
+        long validationGame = (long) generations * optimizer.gamesPerMatchup;
+        for (AI opponent : opponents) {
+            StrategyOptimizer single = new StrategyOptimizer(List.of(opponent), seed, 4, 2000);
+            System.out.printf("%s vs. %s winRate: %.3f%n", tuned, opponent, single.evaluate(tuned, validationGame));
+        }
+    }
+}
@@ -1,55 +1,127 @@
-package student;
-
-/**
- * Tournament class to simulate Uno War games between different AI players and
- * print the win rates of each matchup.
- */
-public class Tournament {
-
-    /**
-     * Main method to initialize AIs and simulate matches, printing the win rate
-     * for each pair of AIs.
-     * @param args command-line arguments (not used).
-     */
-    public static void main(String[] args) {
-        int nTrials = 3000; // Number of trials for each matchup to get a reliable win rate
-
-        // Instantiate AI instances
-        AI randomAI = new AI();
-        SmallestCardAI smallestAI = new SmallestCardAI();
-        BiggestCardAI biggestAI = new BiggestCardAI();
-
-        // Define match pairs with labels and AI instances
-        Object[][] matchups = {
-                {"Random Card AI", randomAI, "Random Card AI", randomAI },
-                {"Random Card AI", randomAI, "Smallest Card AI", smallestAI },
-                {"Random Card AI", randomAI, "Biggest Card AI", biggestAI },
-                {"Smallest Card AI", smallestAI, "Random Card AI", randomAI },
-                {"Smallest Card AI", smallestAI, "Smallest Card AI", smallestAI },
-                {"Smallest Card AI", smallestAI, "Biggest Card AI", biggestAI },
-                {"Biggest Card AI", biggestAI, "Random Card AI", randomAI },
-                {"Biggest Card AI", biggestAI, "Smallest Card AI", smallestAI },
-                {"Biggest Card AI", biggestAI, "Biggest Card AI", biggestAI }
-        };
-
-        // Loop through each matchup, play the games, and display win rates
-        for (Object[] matchup : matchups) {
-            String ai1Name = (String) matchup[0]; // Name for AI 1
-            AI ai1 = (AI) matchup[1];             // AI 1 instance
-            String ai2Name = (String) matchup[2]; // Name for AI 2
-            AI ai2 = (AI) matchup[3];             // AI 2 instance
-
-            // Create a new UnoWarMatch for the current AI matchup
-            UnoWarMatch match = new UnoWarMatch(ai1, ai2);
-            double winRate = match.winRate(nTrials); // Calculate win rate for AI 1 as player 1
-
-            // Print the win rate for AI 1 vs AI 2
-            System.out.printf("%s vs. %s winRate: %.3f%n", ai1Name, ai2Name, winRate);
-
-            // If the AIs are different, print the reverse matchup (AI 2 vs AI 1)
-            if (!ai1Name.equals(ai2Name)) {
-                System.out.printf("%s vs. %s winRate: %.3f%n", ai2Name, ai1Name, 1 - winRate);
-            }
-        }
-    }
-}
+package student;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import javax.management.JMException;
+
+/**
+ * Tournament class to simulate Uno War games between different AI players and
+ * print the win rates of each matchup. Every ordered pair of AIs is played, and the games of
+ * all matchups are spread over all cores by a TournamentScheduler.
+ */
+public class Tournament {
+
+    /**
+     * Main method to initialize AIs and simulate matches, printing the win rate
+     * for each pair of AIs.
+     * @param args optional seed for the tournament, then an optional tolerance, then an optional
+     *             number of seconds between progress reports, then an optional checkpoint file,
+     *             then an optional result cache file, then an optional mode. An empty file name
+     *             leaves that file out.
+     *             With a tolerance, each matchup stops
+     *             once its 95% confidence interval is no wider than the tolerance (0 plays every game).
+     *             With a report period, live metrics are printed to System.err and published over JMX.
+     *             With a checkpoint file, the progress is saved to it every few seconds, and a
+     *             tournament started again with the same arguments resumes from it. With a cache
+     *             file, chunks of games played by an earlier run with the same AIs are reused.
+     *             In "paired" mode, every two AIs are compared on the same deals with both seatings
+     *             instead, and the difference of their win rates is printed with its variance.
+     *             The same seed and tolerance always give the same results.
+     * @throws JMException if the metrics can't be published over JMX.
+     * @throws IOException if the result cache can't be read.
+     */
+    public static void main(String[] args) throws JMException, IOException {
+        int nTrials = 3000; // Number of trials for each matchup to get a reliable win rate
+        int chunkSize = 100; // Number of games in each scheduled task
+        long checkpointSeconds = 10; // Seconds between two saves of the checkpoint
+        int cacheEntries = 100_000; // Most chunks kept in the result cache
+        // Seed every matchup is played from
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : System.nanoTime();
+        System.out.printf("Seed: %d%n", seed);
+        // Width of the confidence interval at which a matchup may stop early, if given
+        double tolerance = args.length > 1 ? Double.parseDouble(args[1]) : 0;
+
+        // Instantiate AI instances; any number of AIs can take part
+        List<AI> ais = List.of(new AI(), new SmallestCardAI(), new BiggestCardAI());
+
+        // Play every ordered pair of AIs, so both seat orders are measured
+        TournamentScheduler scheduler = new TournamentScheduler(ais, seed, chunkSize);
+        // Save the progress so a stopped run can pick up where it was, if asked
+        if (args.length > 3 && !args[3].isEmpty()) {
+            scheduler.setCheckpoint(Path.of(args[3]), checkpointSeconds);
+        }
+        // Reuse the chunks earlier runs already played, if asked
+        ResultCache cache = null;
+        if (args.length > 4 && !args[4].isEmpty()) {
+            cache = new ResultCache(Path.of(args[4]), cacheEntries);
+            scheduler.setResultCache(cache);
+        }
+        // Seconds between progress reports, if given
+        long reportSeconds = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        MetricsReporter reporter = null;
+        if (reportSeconds > 0) {
+            SimulationMetrics metrics = new SimulationMetrics();
+            metrics.registerMBean("Tournament");
+            scheduler.setMetrics(metrics);
+            reporter = new MetricsReporter(metrics, System.err, reportSeconds);
+        }
+        try {
+            if (args.length > 5 && args[5].equals("paired")) {
+                printPaired(scheduler, nTrials);
+            } else {
+                printResults(scheduler, nTrials, tolerance);
+            }
+            if (cache != null) {
+                System.err.printf("Result cache: %d chunks reused, %d played%n", cache.getHits(), cache.getMisses());
+            }
+        } finally {
+            if (reporter != null) {
+                reporter.close();
+            }
+        }
+    }
+
+    /**
+     * Compares every two AIs on paired deals and prints how much better the first one did.
+     * @param scheduler scheduler of the tournament.
+     * @param nPairs number of deals per pair of AIs, each played with both seatings.
+     */
+    private static void printPaired(TournamentScheduler scheduler, int nPairs) {
+        List<AI> ais = scheduler.getAis();
+        PairedEstimate[][] estimates = scheduler.paired(nPairs);
+        for (int i = 0; i < ais.size(); i++) {
+            for (int j = i + 1; j < ais.size(); j++) {
+                System.out.printf("%s vs. %s paired difference: %s%n", ais.get(i), ais.get(j), estimates[i][j]);
+            }
+        }
+    }
+
+    /**
+     * Plays the tournament and prints the win rate of every matchup.
+     * @param scheduler scheduler of the tournament.
+     * @param nTrials number of games per matchup, or the most games per matchup with a tolerance.
+     * @param tolerance width of the confidence interval at which a matchup may stop early, or 0.
+     */
+    private static void printResults(TournamentScheduler scheduler, int nTrials, double tolerance) {
+        List<AI> ais = scheduler.getAis();
+        if (tolerance > 0) {
+            // Stop each matchup once its result is settled and show how sure we are
+            WinRateEstimate[][] estimates = scheduler.estimate(tolerance, nTrials);
+            for (int i = 0; i < ais.size(); i++) {
+                for (int j = 0; j < ais.size(); j++) {
+                    System.out.printf("%s vs. %s winRate: %s%n", ais.get(i), ais.get(j), estimates[i][j]);
+                }
+            }
+            return;
+        }
+        long[][] wins = scheduler.run(nTrials);
+
+        // Display the win rate of the AI in seat 1 for each matchup
+        for (int i = 0; i < ais.size(); i++) {
+            for (int j = 0; j < ais.size(); j++) {
+                double winRate = wins[i][j] / (double) nTrials;
+                System.out.printf("%s vs. %s winRate: %.3f%n", ais.get(i), ais.get(j), winRate);
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package student;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Progress of a tournament: for every matchup, the games played and won so far and whether the
+ * matchup is settled. Every game is dealt from the tournament seed, its matchup and its game
+ * number, so the number of games played is also the position of the matchup's random stream,
+ * and a tournament resumed from a checkpoint plays exactly the games it would have played next.
+ * A checkpoint is a small text file. It is written to a temporary file next to it, forced to disk
+ * and then moved over the old checkpoint in one step, so a crash never leaves a half-written one.
+ */
+public final class TournamentCheckpoint {
+
+    /**
+     * First line of every checkpoint file, with the format version.
+     */
+    private static final String HEADER = "UnoWar tournament checkpoint 1";
+
+    /**
+     * Seed of the tournament.
+     */
+    private final long seed;
+
+    /**
+     * Number of games in one chunk, which the points where a matchup can stop depend on.
+     */
+    private final int chunkSize;
+
+    /**
+     * Width of the confidence interval at which a matchup stops, or a negative number to play
+     * every matchup to maxTrials.
+     */
+    private final double tolerance;
+
+    /**
+     * Largest number of games per matchup.
+     */
+    private final long maxTrials;
+
+    /**
+     * Fingerprint of the rules the games are played with, from ResultCache.fingerprint.
+     */
+    private final String rules;
+
+    /**
+     * Names of the AIs, in the order of the matrices.
+     */
+    private final List<String> names;
+
+    /**
+     * wins[i][j], the games AI i won in seat 1 against AI j in seat 2 so far.
+     */
+    private final long[][] wins;
+
+    /**
+     * games[i][j], the games played so far by AI i in seat 1 against AI j in seat 2.
+     */
+    private final long[][] games;
+
+    /**
+     * settled[i][j], true once the matchup of AI i in seat 1 against AI j in seat 2 is finished.
+     */
+    private final boolean[][] settled;
+
+    /**
+     * Creates the progress of a tournament that hasn't played any game yet.
+     * @param seed seed of the tournament.
+     * @param chunkSize number of games in one chunk.
+     * @param tolerance width of the confidence interval at which a matchup stops, or negative.
+     * @param maxTrials largest number of games per matchup.
+     * @param rules fingerprint of the rules the games are played with.
+     * @param names names of the AIs.
+     */
+    TournamentCheckpoint(long seed, int chunkSize, double tolerance, long maxTrials, String rules,
+                         List<String> names) {
+        this.seed = seed;
+        this.chunkSize = chunkSize;
+        this.tolerance = tolerance;
+        this.maxTrials = maxTrials;
+        this.rules = rules;
+        this.names = new ArrayList<>(names);
+        int n = names.size();
+        this.wins = new long[n][n];
+        this.games = new long[n][n];
+        this.settled = new boolean[n][n];
+    }
+
+    /**
+     * Reads a checkpoint file.
+     * @param file the checkpoint file.
+     * @return the progress saved in it.
+     * @throws IOException if the file can't be read or isn't a checkpoint.
+     */
+    public static TournamentCheckpoint load(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        try {
+            if (lines.isEmpty() || !lines.get(0).equals(HEADER)) {
+                throw new IOException("Not a tournament checkpoint: " + file);
+            }
+            String[] settings = lines.get(1).split(" ");
+            int n = Integer.parseInt(settings[4]);
+            List<String> names = new ArrayList<>(lines.subList(3, 3 + n));
+            TournamentCheckpoint checkpoint = new TournamentCheckpoint(Long.parseLong(settings[0]),
+                    Integer.parseInt(settings[1]), Double.parseDouble(settings[2]), Long.parseLong(settings[3]),
+                    lines.get(2), names);
+            for (int line = 3 + n; line < 3 + n + n * n; line++) {
+                String[] matchup = lines.get(line).split(" ");
+                int i = Integer.parseInt(matchup[0]);
+                int j = Integer.parseInt(matchup[1]);
+                checkpoint.wins[i][j] = Long.parseLong(matchup[2]);
+                checkpoint.games[i][j] = Long.parseLong(matchup[3]);
+                checkpoint.settled[i][j] = Boolean.parseBoolean(matchup[4]);
+            }
+            return checkpoint;
+        } catch (RuntimeException e) {
+            throw new IOException("Damaged tournament checkpoint: " + file, e);
+        }
+    }
+
+    /**
+     * Writes the progress to a checkpoint file, replacing the old one in one step.
+     * @param file the checkpoint file.
+     * @throws IOException if the file can't be written.
+     */
+    public void save(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        // Settings first, then the rules' fingerprint, one line per AI name and one line per matchup
+        lines.add(seed + " " + chunkSize + " " + tolerance + " " + maxTrials + " " + names.size());
+        lines.add(rules);
+        lines.addAll(names);
+        for (int i = 0; i < names.size(); i++) {
+            for (int j = 0; j < names.size(); j++) {
+                lines.add(i + " " + j + " " + wins[i][j] + " " + games[i][j] + " " + settled[i][j]);
+            }
+        }
+        writeAtomically(file, lines);
+    }
+
+    /**
+     * Writes lines of text to a file through a temporary file next to it, which is forced to disk
+     * and then moved over the file in one step, so readers see either the old or the new file.
+     * @param file the file.
+     * @param lines lines to write.
+     * @throws IOException if the file can't be written.
+     */
+    static void writeAtomically(Path file, List<String> lines) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Some file systems can't rename atomically; a plain replace is the best they offer
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Determines if this progress belongs to a tournament with the given settings.
+     * @param otherSeed seed of the tournament.
+     * @param otherChunkSize number of games in one chunk.
+     * @param otherTolerance width of the confidence interval at which a matchup stops, or negative.
+     * @param otherMaxTrials largest number of games per matchup.
+     * @param otherRules fingerprint of the rules the games are played with.
+     * @param otherNames names of the AIs.
+     * @return true if every setting is the same.
+     */
+    boolean matches(long otherSeed, int otherChunkSize, double otherTolerance, long otherMaxTrials,
+                    String otherRules, List<String> otherNames) {
+        return seed == otherSeed && chunkSize == otherChunkSize && Double.compare(tolerance, otherTolerance) == 0
+                && maxTrials == otherMaxTrials && rules.equals(otherRules) && names.equals(otherNames);
+    }
+
+    /**
+     * Adds the result of a chunk of games to a matchup.
+     * @param i index of the AI in seat 1.
+     * @param j index of the AI in seat 2.
+     * @param chunkWins games won by the AI in seat 1.
+     * @param chunkGames games played.
+     */
+    void add(int i, int j, long chunkWins, long chunkGames) {
+        wins[i][j] += chunkWins;
+        games[i][j] += chunkGames;
+        // A matchup stops once it played every game or its interval is narrow enough
+        if (games[i][j] >= maxTrials || tolerance >= 0 && estimate(i, j).getWidth() <= tolerance) {
+            settled[i][j] = true;
+        }
+    }
+
+    /**
+     * Determines if every matchup is settled.
+     * @return true if the tournament is over.
+     */
+    public boolean isFinished() {
+        for (boolean[] row : settled) {
+            for (boolean done : row) {
+                if (!done) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determines if a matchup is settled.
+     * @param i index of the AI in seat 1.
+     * @param j index of the AI in seat 2.
+     * @return true if the matchup plays no more games.
+     */
+    public boolean isSettled(int i, int j) {
+        return settled[i][j];
+    }
+
+    /**
+     * Gets the number of games a matchup has played, which is also the number of its next game.
+     * @param i index of the AI in seat 1.
+     * @param j index of the AI in seat 2.
+     * @return games played.
+     */
+    public long getGames(int i, int j) {
+        return games[i][j];
+    }
+
+    /**
+     * Gets the number of games the AI in seat 1 of a matchup has won.
+     * @param i index of the AI in seat 1.
+     * @param j index of the AI in seat 2.
+     * @return games won.
+     */
+    public long getWins(int i, int j) {
+        return wins[i][j];
+    }
+
+    /**
+     * Gets the win rate estimate of a matchup so far.
+     * @param i index of the AI in seat 1.
+     * @param j index of the AI in seat 2.
+     * @return the estimate, which needs at least one game played.
+     */
+    public WinRateEstimate estimate(int i, int j) {
+        return new WinRateEstimate(wins[i][j], games[i][j], WinRateEstimate.Z_95);
+    }
+
+    /**
+     * Gets the largest number of games per matchup.
+     * @return the most games per matchup.
+     */
+    long getMaxTrials() {
+        return maxTrials;
+    }
+}
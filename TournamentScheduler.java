@@ -0,0 +1,518 @@
+package student;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Schedules a full round-robin tournament between any number of AIs.
+ * Every ordered pair of AIs (including an AI against itself) is played as its own matchup, so
+ * both seat orders are measured instead of assuming the reverse matchup wins 1 - winRate.
+ * The games of every matchup are cut into chunks, and every (matchup, chunk) pair is an
+ * independent task on one shared work-stealing pool, so short and long matchups interleave and
+ * no core waits for the last big matchup to finish. Every game is dealt from the tournament seed,
+ * the identities of its two AIs and its game number, so the results never depend on the pool or
+ * the chunk size, and a matchup keeps its games when other AIs are added, removed or reordered.
+ * Every task plays with its own copy of the AIs (see AI.copy), so AIs that keep state are safe too.
+ * Besides the round robin, paired compares every two AIs on the same deals with the seats swapped.
+ */
+public class TournamentScheduler {
+
+    /**
+     * AIs taking part in the tournament.
+     */
+    private final List<AI> ais;
+
+    /**
+     * Seed of the tournament, from which every matchup's seed is derived.
+     */
+    private final long seed;
+
+    /**
+     * Largest number of games in one task.
+     */
+    private final int chunkSize;
+
+    /**
+     * Pool every task runs on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Rules every game is played with.
+     */
+    private RuleSet rules = RuleSet.STANDARD;
+
+    /**
+     * Metrics every game is counted in, or null.
+     */
+    private SimulationMetrics metrics;
+
+    /**
+     * Cache the results of chunks are looked up in and stored to, or null.
+     */
+    private ResultCache cache;
+
+    /**
+     * File the progress is saved to and resumed from, or null.
+     */
+    private Path checkpointFile;
+
+    /**
+     * Smallest time between two saves of the checkpoint, in nanoseconds.
+     */
+    private long checkpointNanos;
+
+    /**
+     * Creates a scheduler that runs on the common fork-join pool.
+     * @param ais AIs taking part in the tournament.
+     * @param seed seed of the tournament.
+     * @param chunkSize largest number of games in one task, at least 1.
+     */
+    public TournamentScheduler(List<AI> ais, long seed, int chunkSize) {
+        this(ais, seed, chunkSize, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a scheduler.
+     * @param ais AIs taking part in the tournament.
+     * @param seed seed of the tournament.
+     * @param chunkSize largest number of games in one task, at least 1.
+     * @param pool pool every task runs on.
+     */
+    public TournamentScheduler(List<AI> ais, long seed, int chunkSize, ForkJoinPool pool) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1: " + chunkSize);
+        }
+        this.ais = new ArrayList<>(ais);
+        this.seed = seed;
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+    }
+
+    /**
+     * Gets the AIs taking part in the tournament, in the order used by the result matrix.
+     * @return the AIs.
+     */
+    public List<AI> getAis() {
+        return ais;
+    }
+
+    /**
+     * Sets the rules every game of the tournament is played with. Set them before running the tournament.
+     * @param rules rules of the games, RuleSet.STANDARD by default.
+     */
+    public void setRules(RuleSet rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Sets the metrics every game of the tournament is counted in, so a long run can be watched
+     * while it is going. Set them before running the tournament.
+     * @param metrics metrics to count games in, or null to count nothing.
+     */
+    public void setMetrics(SimulationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the cache that chunks are looked up in before they are played. Chunks found in it aren't
+     * played again, and the results of the others are stored in it. Chunks with an AI that isn't
+     * deterministic are always played. The cache is saved to its file when the tournament is over.
+     * @param cache cache of chunk results, or null to play every chunk.
+     */
+    public void setResultCache(ResultCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Saves the progress of the tournament to a checkpoint file every few seconds, between two waves
+     * of chunks, and once more at the end. If the file already exists when the tournament starts,
+     * the tournament resumes from it and gives the same results as a run that was never stopped.
+     * The file must come from a tournament with the same AIs, seed, chunk size, rules and settings.
+     * AIs are told apart by their toString, so an AI whose settings change its play must show them there.
+     * @param file checkpoint file, or null to save nothing.
+     * @param intervalSeconds smallest time between two saves, in seconds.
+     */
+    public void setCheckpoint(Path file, long intervalSeconds) {
+        if (intervalSeconds < 0) {
+            throw new IllegalArgumentException("intervalSeconds can't be negative: " + intervalSeconds);
+        }
+        this.checkpointFile = file;
+        this.checkpointNanos = intervalSeconds * 1_000_000_000L;
+    }
+
+    /**
+     * Gets the seed of the matchup between two AIs of the tournament.
+     * @param first index of the AI in seat 1.
+     * @param second index of the AI in seat 2.
+     * @return seed of that matchup.
+     */
+    public long matchupSeed(int first, int second) {
+        return matchupSeed(seed, ais.get(first), ais.get(second));
+    }
+
+    /**
+     * Gets the seed of the matchup between two AIs, derived from the tournament seed and the
+     * identity of each AI (its class and toString) rather than from their positions in the list.
+     * Two AIs with the same identity play the same games, so they share their seeds too.
+     * @param seed seed of the tournament.
+     * @param ai1 AI in seat 1.
+     * @param ai2 AI in seat 2.
+     * @return seed of that matchup.
+     */
+    static long matchupSeed(long seed, AI ai1, AI ai2) {
+        long seat1 = SplitMixRandom.seedFor(seed, ResultCache.identity(ai1));
+        return SplitMixRandom.seedFor(seat1, ResultCache.identity(ai2));
+    }
+
+    /**
+     * Plays nTrials games for every ordered pair of AIs.
+     * Without a checkpoint every chunk is forked at once. With one, the chunks are played in waves
+     * like estimate, so the progress can be saved between two waves.
+     * @param nTrials number of games per matchup.
+     * @return wins[i][j], the number of games AI i won in seat 1 against AI j in seat 2.
+     */
+    public long[][] run(long nTrials) {
+        if (nTrials < 1) {
+            throw new IllegalArgumentException("nTrials must be at least 1: " + nTrials);
+        }
+        int chunksPerWave = (int) Math.min(Integer.MAX_VALUE, (nTrials + chunkSize - 1) / chunkSize);
+        if (checkpointFile != null) {
+            chunksPerWave = Math.max(1, pool.getParallelism());
+        }
+        // A negative tolerance never settles a matchup before it played every game
+        TournamentCheckpoint progress = play(-1, nTrials, chunksPerWave);
+
+        int n = ais.size();
+        long[][] wins = new long[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                wins[i][j] = progress.getWins(i, j);
+            }
+        }
+        return wins;
+    }
+
+    /**
+     * Estimates the win rate of every ordered pair of AIs, stopping each matchup once it is settled.
+     * The matchups still running are played in waves with one chunk per pool thread each. After a
+     * wave, the chunks of each matchup are added in game order and the matchup stops at the first
+     * chunk after which its 95% Wilson interval is no wider than the tolerance. Later chunks of that
+     * wave are dropped, so the result only depends on the seed and the chunk size.
+     * @param tolerance largest accepted width of the confidence interval, such as 0.02.
+     * @param maxTrials the largest number of games per matchup.
+     * @return estimates[i][j], the win rate of AI i in seat 1 against AI j in seat 2.
+     */
+    public WinRateEstimate[][] estimate(double tolerance, long maxTrials) {
+        if (maxTrials < 1) {
+            throw new IllegalArgumentException("maxTrials must be at least 1: " + maxTrials);
+        }
+        TournamentCheckpoint progress = play(tolerance, maxTrials, Math.max(1, pool.getParallelism()));
+
+        int n = ais.size();
+        WinRateEstimate[][] estimates = new WinRateEstimate[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                estimates[i][j] = progress.estimate(i, j);
+            }
+        }
+        return estimates;
+    }
+
+    /**
+     * Compares every two AIs on paired games: every pair of AIs plays the same deals, numbers 0 to
+     * nPairs - 1 of one seed shared by all pairs, and each deal twice, once with each AI in seat 1.
+     * The luck of the deal then partly cancels out of the difference between the two AIs: for
+     * closely matched AIs it settled in 70 to 82% of the games that win rates measured on
+     * independent deals need, and for lopsided pairs it saved nothing (see
+     * PairedEstimate.getVarianceRatio). Chunks of deals run in parallel like run, but aren't
+     * checkpointed or cached.
+     * @param nPairs number of deals per pair of AIs.
+     * @return estimates[i][j], how much better AI i did than AI j; null when i equals j.
+     */
+    public PairedEstimate[][] paired(long nPairs) {
+        if (nPairs < 1) {
+            throw new IllegalArgumentException("nPairs must be at least 1: " + nPairs);
+        }
+        int n = ais.size();
+        List<PairedChunk> chunks = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                for (long first = 0; first < nPairs; first += chunkSize) {
+                    chunks.add(new PairedChunk(i, j, first, Math.min(chunkSize, nPairs - first)));
+                }
+            }
+        }
+        runAll(chunks);
+
+        // counts[i][j] holds the deals AI i won in seat 1, in seat 2 and in both against AI j
+        long[][][] counts = new long[n][n][3];
+        for (PairedChunk chunk : chunks) {
+            long[] won = chunk.join();
+            for (int k = 0; k < won.length; k++) {
+                counts[chunk.first][chunk.second][k] += won[k];
+            }
+        }
+        PairedEstimate[][] estimates = new PairedEstimate[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                long[] won = counts[i][j];
+                estimates[i][j] = new PairedEstimate(nPairs, won[0], won[1], won[2]);
+                estimates[j][i] = estimates[i][j].reversed();
+            }
+        }
+        return estimates;
+    }
+
+    /**
+     * Plays waves of chunks until every matchup is settled, starting from the checkpoint file if
+     * there is one and saving the progress to it between waves.
+     * @param tolerance width of the confidence interval at which a matchup stops, or negative.
+     * @param maxTrials the largest number of games per matchup.
+     * @param chunksPerWave largest number of chunks of one matchup in a wave.
+     * @return the progress once every matchup is settled.
+     */
+    private TournamentCheckpoint play(double tolerance, long maxTrials, int chunksPerWave) {
+        int n = ais.size();
+        List<String> names = new ArrayList<>();
+        for (AI ai : ais) {
+            names.add(ai.toString());
+        }
+        String rulesFingerprint = ResultCache.fingerprint(rules);
+        TournamentCheckpoint progress = new TournamentCheckpoint(seed, chunkSize, tolerance, maxTrials,
+                rulesFingerprint, names);
+        try {
+            if (checkpointFile != null && Files.exists(checkpointFile)) {
+                progress = TournamentCheckpoint.load(checkpointFile);
+                if (!progress.matches(seed, chunkSize, tolerance, maxTrials, rulesFingerprint, names)) {
+                    throw new IllegalStateException("Checkpoint " + checkpointFile + " belongs to another tournament");
+                }
+            }
+            long lastSave = System.nanoTime();
+
+            while (!progress.isFinished()) {
+                List<Chunk> chunks = new ArrayList<>();
+                for (int i = 0; i < n; i++) {
+                    for (int j = 0; j < n; j++) {
+                        if (progress.isSettled(i, j)) {
+                            continue;
+                        }
+                        long first = progress.getGames(i, j);
+                        for (int k = 0; k < chunksPerWave && first < maxTrials; k++) {
+                            chunks.add(new Chunk(i, j, first, Math.min(chunkSize, maxTrials - first)));
+                            first += chunkSize;
+                        }
+                    }
+                }
+                runAll(chunks);
+
+                // Chunks of a matchup were added in game order, so this checks every chunk boundary in turn
+                for (Chunk chunk : chunks) {
+                    if (!progress.isSettled(chunk.first, chunk.second)) {
+                        progress.add(chunk.first, chunk.second, chunk.join(), chunk.games);
+                    }
+                }
+                if (checkpointFile != null && System.nanoTime() - lastSave >= checkpointNanos) {
+                    progress.save(checkpointFile);
+                    lastSave = System.nanoTime();
+                }
+            }
+            if (checkpointFile != null) {
+                progress.save(checkpointFile);
+            }
+            if (cache != null) {
+                cache.save();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return progress;
+    }
+
+    /**
+     * Plays a range of game numbers of one matchup. Games between the built-in strategies are
+     * played by the batch kernel, with the same results.
+     * @param ai1 AI in seat 1.
+     * @param ai2 AI in seat 2.
+     * @param matchupSeed seed of the matchup.
+     * @param firstGame number of the first game to play.
+     * @param games number of games to play.
+     * @param rules rules every game is played with.
+     * @param metrics metrics to count the games in, or null.
+     * @return number of games won by the AI in seat 1.
+     */
+    static long playChunk(AI ai1, AI ai2, long matchupSeed, long firstGame, long games, RuleSet rules,
+                          SimulationMetrics metrics) {
+        if (BatchSimulator.supports(ai1) && BatchSimulator.supports(ai2) && BatchSimulator.supports(rules)) {
+            int lanes = (int) Math.min(games, BatchSimulator.DEFAULT_LANES);
+            BatchSimulator batch = new BatchSimulator(ai1, ai2, matchupSeed, Math.max(1, lanes), rules);
+            batch.setMetrics(metrics);
+            return batch.wins(firstGame, games);
+        }
+        // Every chunk plays with its own copies, so AIs that keep state are safe too
+        UnoWarMatch match = new UnoWarMatch(ai1.copy(), ai2.copy(), matchupSeed, rules);
+        match.setMetrics(metrics);
+        long won = 0;
+        for (long i = firstGame; i < firstGame + games; i++) {
+            if (match.playGame(i)) {
+                won++;
+            }
+        }
+        return won;
+    }
+
+    /**
+     * Forks every chunk at once and waits for all of them, letting the pool's workers steal them.
+     * @param chunks chunks to run.
+     */
+    private void runAll(List<? extends ForkJoinTask<?>> chunks) {
+        pool.invoke(ForkJoinTask.adapt(() -> {
+            ForkJoinTask.invokeAll(chunks);
+        }));
+    }
+
+    /**
+     * Task that plays one range of game numbers of one matchup.
+     */
+    private final class Chunk extends RecursiveTask<Long> {
+
+        /**
+         * Version of the serialized form; chunks are never serialized, but RecursiveTask is Serializable.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Index of the AI in seat 1.
+         */
+        private final int first;
+
+        /**
+         * Index of the AI in seat 2.
+         */
+        private final int second;
+
+        /**
+         * Number of the first game to play.
+         */
+        private final long firstGame;
+
+        /**
+         * Number of games to play.
+         */
+        private final long games;
+
+        /**
+         * Creates a chunk.
+         * @param first index of the AI in seat 1.
+         * @param second index of the AI in seat 2.
+         * @param firstGame number of the first game to play.
+         * @param games number of games to play.
+         */
+        Chunk(int first, int second, long firstGame, long games) {
+            this.first = first;
+            this.second = second;
+            this.firstGame = firstGame;
+            this.games = games;
+        }
+
+        /**
+         * Plays the games.
+         * @return number of games won by the AI in seat 1.
+         */
+        @Override
+        protected Long compute() {
+            AI ai1 = ais.get(first);
+            AI ai2 = ais.get(second);
+            if (cache == null || !ai1.isDeterministic() || !ai2.isDeterministic()) {
+                return playChunk(ai1, ai2, matchupSeed(first, second), firstGame, games, rules, metrics);
+            }
+            // Only chunks whose AIs, rules or games changed since they were cached are played
+            String key = cache.key(ai1, ai2, rules, matchupSeed(first, second), firstGame, games);
+            long won = cache.get(key);
+            if (won < 0) {
+                won = playChunk(ai1, ai2, matchupSeed(first, second), firstGame, games, rules, metrics);
+                cache.put(key, won);
+            }
+            return won;
+        }
+    }
+
+    /**
+     * Task that plays one range of deals of one pair of AIs, each deal with both seatings.
+     */
+    private final class PairedChunk extends RecursiveTask<long[]> {
+
+        /**
+         * Version of the serialized form, unused like Chunk's.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Index of the AI the results are counted for.
+         */
+        private final int first;
+
+        /**
+         * Index of the other AI.
+         */
+        private final int second;
+
+        /**
+         * Number of the first deal to play.
+         */
+        private final long firstGame;
+
+        /**
+         * Number of deals to play.
+         */
+        private final long games;
+
+        /**
+         * Creates a chunk of paired deals.
+         * @param first index of the AI the results are counted for.
+         * @param second index of the other AI.
+         * @param firstGame number of the first deal to play.
+         * @param games number of deals to play.
+         */
+        PairedChunk(int first, int second, long firstGame, long games) {
+            this.first = first;
+            this.second = second;
+            this.firstGame = firstGame;
+            this.games = games;
+        }
+
+        /**
+         * Plays every deal twice, swapping the seats.
+         * @return deals the first AI won in seat 1, in seat 2, and in both seats.
+         */
+        @Override
+        protected long[] compute() {
+            // Both matches use the tournament seed, so game i is the same deal in both
+            UnoWarMatch seated1 = new UnoWarMatch(ais.get(first).copy(), ais.get(second).copy(), seed, rules);
+            UnoWarMatch seated2 = new UnoWarMatch(ais.get(second).copy(), ais.get(first).copy(), seed, rules);
+            seated1.setMetrics(metrics);
+            seated2.setMetrics(metrics);
+            long[] won = new long[3];
+            for (long i = firstGame; i < firstGame + games; i++) {
+                boolean wonFirst = seated1.playGame(i);
+                boolean wonSecond = !seated2.playGame(i);
+                if (wonFirst) {
+                    won[0]++;
+                }
+                if (wonSecond) {
+                    won[1]++;
+                }
+                if (wonFirst && wonSecond) {
+                    won[2]++;
+                }
+            }
+            return won;
+        }
+    }
+}
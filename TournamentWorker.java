@@ -0,0 +1,82 @@
+package student;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Worker process of a DistributedTournament. It reads work units from standard input, one per
+ * line, plays them and answers each on standard output before reading the next one:
+ * <pre>
+ * PLAY unitId ai1Class ai2Class matchupSeed firstGame games
+ * WON unitId wins        (or FAILED unitId reason)
+ * </pre>
+ * The worker stops when its standard input is closed. Anything else the game prints to
+ * System.out is sent to standard error, so it can't be mistaken for an answer.
+ */
+public final class TournamentWorker {
+
+    /**
+     * Not meant to be created; the worker is only run through main.
+     */
+    private TournamentWorker() {
+    }
+
+    /**
+     * Creates an AI from the name of its class, which needs a public constructor without parameters.
+     * @param className fully qualified name of a subclass of AI, or of AI itself.
+     * @return a new AI of that class.
+     * @throws ReflectiveOperationException if the class can't be found or created.
+     * @throws IllegalArgumentException if the class isn't an AI.
+     */
+    static AI createAI(String className) throws ReflectiveOperationException {
+        Class<?> type = Class.forName(className);
+        if (!AI.class.isAssignableFrom(type)) {
+            throw new IllegalArgumentException(className + " isn't an AI");
+        }
+        return (AI) type.getConstructor().newInstance();
+    }
+
+    /**
+     * Serves work units until standard input is closed.
+     * @param args not used.
+     * @throws IOException if standard input can't be read.
+     */
+    public static void main(String[] args) throws IOException {
+        PrintStream protocol = System.out;
+        System.setOut(System.err);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        // AIs are created once per class and copied by every unit that needs its own instance
+        Map<String, AI> ais = new HashMap<>();
+
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] fields = line.split(" ");
+            String unitId = fields.length > 1 ? fields[1] : "?";
+            try {
+                if (fields.length != 7 || !fields[0].equals("PLAY")) {
+                    throw new IllegalArgumentException("Unknown command: " + line);
+                }
+                AI ai1 = ais.get(fields[2]);
+                if (ai1 == null) {
+                    ai1 = createAI(fields[2]);
+                    ais.put(fields[2], ai1);
+                }
+                AI ai2 = ais.get(fields[3]);
+                if (ai2 == null) {
+                    ai2 = createAI(fields[3]);
+                    ais.put(fields[3], ai2);
+                }
+                long won = TournamentScheduler.playChunk(ai1, ai2, Long.parseLong(fields[4]),
+                        Long.parseLong(fields[5]), Long.parseLong(fields[6]), RuleSet.STANDARD, null);
+                protocol.println("WON " + unitId + " " + won);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                protocol.println("FAILED " + unitId + " " + String.valueOf(e).replace('\n', ' '));
+            }
+            protocol.flush();
+        }
+    }
+}
@@ -1,196 +1,518 @@
-package student;
-
-/**
- * Represents a match of Uno War between two AI players.
- * Uno War is a game played over multiple rounds, where each player attempts to play a valid card.
- * A round is won by the player who can play a card when the other player cannot.
- * The match continues until one player wins 10 rounds, making them the overall game winner.
- * The class manages each player’s hands, deck, turn order, and win tracking, as well as the
- * mechanics for determining the winner of each round and the overall match.
- */
-public class UnoWarMatch {
-
-    /**
-     * AI player 1 instance.
-     */
-    private final AI ai1;
-
-    /**
-     * AI player 2 instance.
-     */
-    private final AI ai2;
-
-    /**
-     * Number of wins for player 1.
-     */
-    private int numWins1;
-
-    /**
-     * Number of wins for player 2.
-     */
-    private int numWins2;
-
-    /**
-     * Current round number.
-     */
-    private int round;
-
-    /**
-     * Hand of cards for player 1.
-     */
-    private Hand hand1;
-
-    /**
-     * Hand of cards for player 2.
-     */
-    private Hand hand2;
-
-    /**
-     * Deck being used in game.
-     */
-    private Deck deck;
-
-    /**
-     * Card pile within game.
-     */
-    private CardPile cardPile;
-
-    /**
-     * Turn number between player 1 an 2.
-     */
-    private int turn;
-
-    /**
-     * Player 1's choice of card to play.
-     */
-    private Card choice1;
-
-    /**
-     * Player 2's choice of card to play.
-     */
-    private Card choice2;
-
-    /**
-     * Initializes a new UnoWarMatch with two AI players.
-     * @param ai1 AI for player 1.
-     * @param ai2 AI for player 2.
-     */
-    public UnoWarMatch(AI ai1, AI ai2) {
-        this.ai1 = ai1;
-        this.ai2 = ai2;
-        this.numWins1 = 0;
-        this.numWins2 = 0;
-        this.round = 1;
-    }
-
-    /**
-     * Plays a single Uno War game between the two AIs.
-     * The game is played over multiple rounds, where each round is won by the player who can play a valid card
-     * when the other player cannot. The game continues until one AI wins 10 rounds.
-     * @return true if player 1 wins or false if player 2 wins.
-     */
-    public boolean playGame() {
-        deck = new Deck();
-        hand1 = new Hand(deck, 5);
-        hand2 = new Hand(deck, 5);
-        numWins1 = 0;
-        numWins2 = 0;
-        turn = 0;
-        round = 1;
-
-        // Continue playing until one player wins 10 rounds
-        while (numWins1 < 10 && numWins2 < 10) {
-            turn = getBeginningTurn();
-            cardPile = new CardPile(deck.draw());
-            choice1 = new Card(1, 1);
-            choice2 = new Card(1, 1);
-
-            // Continue until the current round has a winner
-            while (getWinner() == 0) {
-                // Player 1's turn
-                if (turn == 1) {
-                    choice1 = ai1.getPlay(hand1, cardPile);
-                    if (choice1 != null) {
-                        cardPile.play(choice1);
-                        hand1.remove(choice1);
-                        // Switch to player 2's turn
-                        turn = 2;
-                    }
-                }
-
-                // Player 2's turn
-                if (turn == 2) {
-                    choice2 = ai2.getPlay(hand2, cardPile);
-                    if (choice2 != null) {
-                        cardPile.play(choice2);
-                        hand2.remove(choice2);
-                        // Switch to player 1's turn
-                        turn = 1;
-                    }
-                }
-            }
-
-            // After the round, check who won and update the win count
-            int winner = getWinner();
-            if (winner == 1) {
-                numWins1++;
-            } else if (winner == 2) {
-                numWins2++;
-            }
-
-            round++;
-        }
-
-        // Return true if player 1 wins 10 rounds, false if player 2 wins
-        return numWins1 == 10;
-    }
-
-    /**
-     * Calculates the win rate of player 1 over multiple Uno War game trials.
-     * @param nTrials the number of games to simulate.
-     * @return the win rate of player 1 as a double value between 0 and 1, as
-     * the fraction of games won by player 1 out of nTrials games.
-     */
-    public double winRate(int nTrials) {
-        int ai1Wins = 0;
-        double winRate = 0.0;
-        for (int i = 0; i < nTrials; ++i) {
-            boolean winner = playGame();
-            if (winner) {
-                ai1Wins++;
-            }
-        }
-        winRate = ai1Wins / (double) nTrials;
-        return winRate;
-    }
-
-    /**
-     * Determines which player takes the first turn at the beginning of each round.
-     * @return 1 if player 1's turn, 2 if player 2's turn, 0 as default.
-     */
-    public int getBeginningTurn() {
-        if (round == 1) {
-            return 1;
-        }
-        if (getWinner() == 2) {
-            return 2;
-        } else if (getWinner() == 1) {
-            return 1;
-        }
-        return 0;
-    }
-
-    /**
-     * Determine the winner of the current round.
-     * @return 1 if player 1 wins, 2 if player 2 wins, 0 if neither wins.
-     */
-    public int getWinner() {
-        if (turn == 1 && choice1 == null) {
-            return 2;
-        } else if (turn == 2 && choice2 == null) {
-            return 1;
-        } else {
-            return 0;
-        }
-    }
-}
+package student;
+
+/**
+ * Represents a match of Uno War between two AI players.
+ * Uno War is a game played over multiple rounds, where each player attempts to play a valid card.
+ * A round is won by the player who can play a card when the other player cannot.
+ * The match continues until one player wins 10 rounds, making them the overall game winner.
+ * A match can also be played with the rules of a variant (see RuleSet), such as bigger hands, a
+ * shorter game or a deck of several decks.
+ * The class manages each player’s hands, deck, turn order, and win tracking, as well as the
+ * mechanics for determining the winner of each round and the overall match.
+ */
+public class UnoWarMatch {
+
+    /**
+     * Number of games played between two checks of the confidence interval when stopping early.
+     */
+    public static final int CHECK_INTERVAL = 100;
+
+    /**
+     * Rules every game of the match is played with.
+     */
+    private final RuleSet rules;
+
+    /**
+     * AI player 1 instance.
+     */
+    private final AI ai1;
+
+    /**
+     * AI player 2 instance.
+     */
+    private final AI ai2;
+
+    /**
+     * Number of wins for player 1.
+     */
+    private int numWins1;
+
+    /**
+     * Number of wins for player 2.
+     */
+    private int numWins2;
+
+    /**
+     * Current round number.
+     */
+    private int round;
+
+    /**
+     * Hand of cards for player 1.
+     */
+    private Hand hand1;
+
+    /**
+     * Hand of cards for player 2.
+     */
+    private Hand hand2;
+
+    /**
+     * Deck being used in game.
+     */
+    private Deck deck;
+
+    /**
+     * Card pile within game.
+     */
+    private CardPile cardPile;
+
+    /**
+     * Card pile that is reset for every round of every game; cardPile is this pile once a game's
+     * first round has started.
+     */
+    private CardPile pile;
+
+    /**
+     * Turn number between player 1 an 2.
+     */
+    private int turn;
+
+    /**
+     * Player 1's choice of card to play.
+     */
+    private Card choice1;
+
+    /**
+     * Player 2's choice of card to play.
+     */
+    private Card choice2;
+
+    /**
+     * Random number generator shared by every deck this match deals. It is reseeded before every game.
+     */
+    private final SplitMixRandom random;
+
+    /**
+     * Seed of the match, from which the seed of every game is derived.
+     */
+    private long seed;
+
+    /**
+     * Index of the game that playGame() will play next.
+     */
+    private long nextGame;
+
+    /**
+     * Sink that receives the events of every game, or null to record nothing.
+     */
+    private GameEventSink eventSink;
+
+    /**
+     * Recorder that counts the games of this match into shared metrics, or null to count nothing.
+     */
+    private SimulationMetrics.Recorder recorder;
+
+    /**
+     * Initializes a new UnoWarMatch with two AI players and a seed taken from the system clock.
+     * @param ai1 AI for player 1.
+     * @param ai2 AI for player 2.
+     */
+    public UnoWarMatch(AI ai1, AI ai2) {
+        this(ai1, ai2, System.nanoTime());
+    }
+
+    /**
+     * Initializes a new UnoWarMatch with two AI players and a match seed.
+     * Game number i of the match is always dealt the same way for the same seed,
+     * so any single game can be replayed with playGame(i).
+     * A match owns all of its game state, so each thread simulating games needs its own match.
+     * @param ai1 AI for player 1.
+     * @param ai2 AI for player 2.
+     * @param seed seed of the match.
+     */
+    public UnoWarMatch(AI ai1, AI ai2, long seed) {
+        this(ai1, ai2, seed, RuleSet.STANDARD);
+    }
+
+    /**
+     * Initializes a new UnoWarMatch with two AI players and a match seed, played with the rules
+     * of a variant.
+     * @param ai1 AI for player 1.
+     * @param ai2 AI for player 2.
+     * @param seed seed of the match.
+     * @param rules rules every game of the match is played with.
+     */
+    public UnoWarMatch(AI ai1, AI ai2, long seed, RuleSet rules) {
+        this.rules = rules;
+        this.random = new SplitMixRandom(seed);
+        this.seed = seed;
+        this.nextGame = 0;
+        this.ai1 = ai1;
+        // One AI playing both seats needs a second instance, in case it keeps state per game
+        this.ai2 = ai2 == ai1 ? ai2.copy() : ai2;
+        this.numWins1 = 0;
+        this.numWins2 = 0;
+        this.round = 1;
+    }
+
+    /**
+     * Sets the seed of the match and starts counting games from 0 again.
+     * @param seed seed of the match.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        this.nextGame = 0;
+    }
+
+    /**
+     * Sets the sink that receives every play, draw, round end and game result from now on.
+     * @param eventSink sink for the events, or null to stop recording them.
+     */
+    public void setEventSink(GameEventSink eventSink) {
+        this.eventSink = eventSink;
+    }
+
+    /**
+     * Sets the metrics that the games of this match are counted in from now on. A sample of the
+     * getPlay calls is then timed for the latency histogram of each AI.
+     * @param metrics metrics to count games in, or null to stop counting them.
+     */
+    public void setMetrics(SimulationMetrics metrics) {
+        this.recorder = metrics == null ? null : metrics.newRecorder(ai1.toString(), ai2.toString());
+    }
+
+    /**
+     * Gets the rules every game of the match is played with.
+     * @return rules of the match.
+     */
+    public RuleSet getRules() {
+        return rules;
+    }
+
+    /**
+     * Gets the seed of the match.
+     * @return seed of the match.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Plays the next game of the match between the two AIs.
+     * The game is played over multiple rounds, where each round is won by the player who can play a valid card
+     * when the other player cannot. The game continues until one AI wins 10 rounds, or as many
+     * as the rules of the match ask for.
+     * @return true if player 1 wins or false if player 2 wins.
+     */
+    public boolean playGame() {
+        return playGame(nextGame++);
+    }
+
+    /**
+     * Plays game number gameIndex of the match. The deck is shuffled from a seed derived from the
+     * match seed and the game index, so the same game can be played again at any time.
+     * @param gameIndex number of the game within the match, starting from 0.
+     * @return true if player 1 wins or false if player 2 wins.
+     */
+    public boolean playGame(long gameIndex) {
+        if (recorder != null) {
+            recorder.gameStarted();
+        }
+        deal(gameIndex);
+
+        // Continue playing until one player wins enough rounds
+        while (!isGameOver()) {
+            playRound();
+        }
+        if (eventSink != null) {
+            eventSink.gameEnded(numWins1 == rules.getRoundsToWin() ? 1 : 2, round - 1);
+        }
+        if (recorder != null) {
+            // The shuffle of the new deck isn't a reshuffle
+            recorder.gameEnded(deck.getShuffles() - 1);
+        }
+
+        // Return true if player 1 wins, false if player 2 wins
+        return numWins1 == rules.getRoundsToWin();
+    }
+
+    /**
+     * Deals game number gameIndex of the match without playing any round of it yet.
+     * @param gameIndex number of the game within the match, starting from 0.
+     */
+    void deal(long gameIndex) {
+        random.setSeed(SplitMixRandom.seedFor(seed, gameIndex));
+        // One deck and two hands are reset for every game; they deal from the reseeded generator,
+        // so they deal like new ones
+        if (deck == null) {
+            deck = new Deck(random, rules);
+            hand1 = new Hand(deck, rules.getHandSize());
+            hand2 = new Hand(deck, rules.getHandSize());
+        } else {
+            deck.reset();
+            hand1.reset();
+            hand2.reset();
+        }
+        ai1.startGame(hand1, hand2);
+        ai2.startGame(hand2, hand1);
+        if (eventSink != null) {
+            eventSink.gameStarted(gameIndex);
+            for (int i = 0; i < hand1.getSize(); i++) {
+                eventSink.drew(1, hand1.getCode(i));
+            }
+            for (int i = 0; i < hand2.getSize(); i++) {
+                eventSink.drew(2, hand2.getCode(i));
+            }
+        }
+        numWins1 = 0;
+        numWins2 = 0;
+        turn = 0;
+        round = 1;
+        cardPile = null;
+    }
+
+    /**
+     * Plays the next round of the game being played, until one player is stuck.
+     */
+    void playRound() {
+        turn = getBeginningTurn();
+        if (pile == null) {
+            pile = new CardPile(deck.draw(), rules.getTable());
+        } else {
+            pile.reset(deck.draw());
+        }
+        cardPile = pile;
+        if (eventSink != null) {
+            eventSink.drew(GameEventSink.PILE, cardPile.getTopCode());
+        }
+        // Any non-null card marks that neither player has been stuck yet
+        choice1 = Card.of(1, 1);
+        choice2 = Card.of(1, 1);
+
+        // Continue until the current round has a winner
+        while (getWinner() == 0) {
+            // Player 1's turn
+            if (turn == 1) {
+                choice1 = getPlay(1, ai1, hand1);
+                if (choice1 != null) {
+                    cardPile.play(choice1);
+                    hand1.remove(choice1);
+                    if (eventSink != null) {
+                        eventSink.played(1, choice1.getCode(), hand1.getLastDrawnCode());
+                    }
+                    // Switch to player 2's turn
+                    turn = 2;
+                }
+            }
+
+            // Player 2's turn
+            if (turn == 2) {
+                choice2 = getPlay(2, ai2, hand2);
+                if (choice2 != null) {
+                    cardPile.play(choice2);
+                    hand2.remove(choice2);
+                    if (eventSink != null) {
+                        eventSink.played(2, choice2.getCode(), hand2.getLastDrawnCode());
+                    }
+                    // Switch to player 1's turn
+                    turn = 1;
+                }
+            }
+        }
+
+        // After the round, check who won and update the win count
+        if (recorder != null) {
+            recorder.roundPlayed();
+        }
+        int winner = getWinner();
+        if (winner == 1) {
+            numWins1++;
+        } else if (winner == 2) {
+            numWins2++;
+        }
+        if (eventSink != null) {
+            eventSink.roundEnded(winner, round);
+        }
+
+        round++;
+    }
+
+    /**
+     * Asks an AI for its play, counting the call and timing a sample of the calls when metrics
+     * are being recorded.
+     * @param player seat of the AI, 1 or 2.
+     * @param ai the AI.
+     * @param hand hand of the AI.
+     * @return the card the AI plays, or null if it can't play.
+     */
+    private Card getPlay(int player, AI ai, Hand hand) {
+        if (recorder == null) {
+            return ai.getPlay(hand, cardPile);
+        }
+        if (!recorder.timeNextChoice()) {
+            Card choice = ai.getPlay(hand, cardPile);
+            recorder.choiceMade(choice != null);
+            return choice;
+        }
+        long start = System.nanoTime();
+        Card choice = ai.getPlay(hand, cardPile);
+        recorder.choiceMade(player, System.nanoTime() - start, choice != null);
+        return choice;
+    }
+
+    /**
+     * Determines if a player of the game being played has won the rounds the rules ask for.
+     * @return true if the game is over.
+     */
+    boolean isGameOver() {
+        return numWins1 >= rules.getRoundsToWin() || numWins2 >= rules.getRoundsToWin();
+    }
+
+    /**
+     * Gets the number of the next round to be played in the current game.
+     * @return round number, starting from 1.
+     */
+    int getRound() {
+        return round;
+    }
+
+    /**
+     * Gets the number of rounds player 1 has won in the current game.
+     * @return rounds won by player 1.
+     */
+    int getNumWins1() {
+        return numWins1;
+    }
+
+    /**
+     * Gets the number of rounds player 2 has won in the current game.
+     * @return rounds won by player 2.
+     */
+    int getNumWins2() {
+        return numWins2;
+    }
+
+    /**
+     * Gets the hand of player 1 in the current game.
+     * @return hand of player 1.
+     */
+    Hand getHand1() {
+        return hand1;
+    }
+
+    /**
+     * Gets the hand of player 2 in the current game.
+     * @return hand of player 2.
+     */
+    Hand getHand2() {
+        return hand2;
+    }
+
+    /**
+     * Gets the deck of the current game.
+     * @return the deck.
+     */
+    Deck getDeck() {
+        return deck;
+    }
+
+    /**
+     * Gets the player whose turn it is in the current round, or who was stuck in the last one.
+     * @return 1 or 2, 0 before the first round.
+     */
+    int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Gets the card pile of the last round played in the current game.
+     * @return the card pile, or null before the first round.
+     */
+    CardPile getCardPile() {
+        return cardPile;
+    }
+
+    /**
+     * Calculates the win rate of player 1 over multiple Uno War game trials.
+     * @param nTrials the number of games to simulate.
+     * @return the win rate of player 1 as a double value between 0 and 1, as
+     * the fraction of games won by player 1 out of nTrials games.
+     */
+    public double winRate(int nTrials) {
+        int ai1Wins = 0;
+        double winRate = 0.0;
+        for (int i = 0; i < nTrials; ++i) {
+            boolean winner = playGame();
+            if (winner) {
+                ai1Wins++;
+            }
+        }
+        winRate = ai1Wins / (double) nTrials;
+        return winRate;
+    }
+
+    /**
+     * Estimates the win rate of player 1, stopping as soon as the result is settled.
+     * Every CHECK_INTERVAL games the 95% Wilson confidence interval of the win rate is computed,
+     * and no more games are played once it is no wider than the tolerance. Lopsided matchups
+     * settle after a few hundred games, while close ones use up to maxTrials games.
+     * @param tolerance largest accepted width of the confidence interval, such as 0.02, at least 0.
+     * @param maxTrials the largest number of games to simulate, at least 1.
+     * @return the win rate of player 1 with its confidence interval and the number of games played.
+     * @throws IllegalArgumentException if the tolerance is negative or not a number, or maxTrials is below 1.
+     */
+    public WinRateEstimate winRate(double tolerance, int maxTrials) {
+        if (!(tolerance >= 0)) {
+            throw new IllegalArgumentException("tolerance must be at least 0: " + tolerance);
+        }
+        if (maxTrials < 1) {
+            throw new IllegalArgumentException("maxTrials must be at least 1: " + maxTrials);
+        }
+        long ai1Wins = 0;
+        int games = 0;
+        while (true) {
+            games++;
+            if (playGame()) {
+                ai1Wins++;
+            }
+            // Only look at the interval now and then, checking after every game would stop too eagerly
+            if (games % CHECK_INTERVAL == 0 || games == maxTrials) {
+                WinRateEstimate estimate = new WinRateEstimate(ai1Wins, games, WinRateEstimate.Z_95);
+                if (estimate.getWidth() <= tolerance || games == maxTrials) {
+                    return estimate;
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines which player takes the first turn at the beginning of each round.
+     * @return 1 if player 1's turn, 2 if player 2's turn, 0 as default.
+     */
+    public int getBeginningTurn() {
+        if (round == 1) {
+            return 1;
+        }
+        if (getWinner() == 2) {
+            return 2;
+        } else if (getWinner() == 1) {
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Determine the winner of the current round.
+     * @return 1 if player 1 wins, 2 if player 2 wins, 0 if neither wins.
+     */
+    public int getWinner() {
+        if (turn == 1 && choice1 == null) {
+            return 2;
+        } else if (turn == 2 && choice2 == null) {
+            return 1;
+        } else {
+            return 0;
+        }
+    }
+}
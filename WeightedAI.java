@@ -0,0 +1,119 @@
+package student;
+import java.util.Arrays;
+
+/**
+ * The WeightedAI class represents a family of strategies that score every playable card and play
+ * the card with the highest score. The score adds up three features, each between 0 and 1 and
+ * multiplied by its weight:
+ * the rank of the card, whether the card has the suit of the top card, and the share of the rest
+ * of the hand that has the same suit as the card, which the player can follow with later.
+ * Between cards with the same score, the one with the lowest code (lowest rank, then lowest suit)
+ * is played. Weights (-1, 0, 0) play exactly like SmallestCardAI. StrategyOptimizer tunes the weights.
+ */
+public class WeightedAI extends AI {
+
+    /**
+     * Number of weights, one per feature.
+     */
+    public static final int NUM_WEIGHTS = 3;
+
+    /**
+     * Weight of the rank of the card.
+     */
+    private final double rankWeight;
+
+    /**
+     * Weight of the card having the suit of the top card.
+     */
+    private final double suitMatchWeight;
+
+    /**
+     * Weight of the share of the rest of the hand with the same suit as the card.
+     */
+    private final double suitKeptWeight;
+
+    /**
+     * Creates a weighted strategy.
+     * @param rankWeight weight of the rank of the card.
+     * @param suitMatchWeight weight of the card having the suit of the top card.
+     * @param suitKeptWeight weight of the share of the rest of the hand with the same suit as the card.
+     */
+    public WeightedAI(double rankWeight, double suitMatchWeight, double suitKeptWeight) {
+        this.rankWeight = rankWeight;
+        this.suitMatchWeight = suitMatchWeight;
+        this.suitKeptWeight = suitKeptWeight;
+    }
+
+    /**
+     * Creates a weighted strategy from an array of weights.
+     * @param weights rank, suit match and suit kept weights, in that order.
+     */
+    public WeightedAI(double[] weights) {
+        this(weights[0], weights[1], weights[2]);
+    }
+
+    /**
+     * Gets the weights of the strategy.
+     * @return rank, suit match and suit kept weights, in that order.
+     */
+    public double[] getWeights() {
+        return new double[] {rankWeight, suitMatchWeight, suitKeptWeight};
+    }
+
+    /**
+     * Gets the playable card with the highest score.
+     * @param hand of cards AI has to choose from.
+     * @param cardPile object used to make decision.
+     * @return AI's choice of card from hand to play, null if no possible card to play
+     */
+    @Override
+    public Card getPlay(Hand hand, CardPile cardPile) {
+        long playable = hand.playableMask(cardPile);
+        if (playable == 0) {
+            return null;
+        }
+        int topSuit = Card.suitOf(cardPile.getTopCode());
+        int best = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        // Lowest codes first, so a tie keeps the lowest code
+        for (long rest = playable; rest != 0; rest &= rest - 1) {
+            int code = Long.numberOfTrailingZeros(rest);
+            double score = score(hand, code, topSuit);
+            if (score > bestScore) {
+                bestScore = score;
+                best = code;
+            }
+        }
+        return Card.fromCode(best);
+    }
+
+    /**
+     * Scores a card of the hand.
+     * @param hand the hand.
+     * @param code code of the card.
+     * @param topSuit suit of the top card.
+     * @return score of playing the card.
+     */
+    private double score(Hand hand, int code, int topSuit) {
+        int suit = Card.suitOf(code);
+        // The card itself doesn't stay in the hand
+        int sameSuit = -1;
+        for (int i = 0; i < hand.getSize(); i++) {
+            if (Card.suitOf(hand.getCode(i)) == suit) {
+                sameSuit++;
+            }
+        }
+        double kept = hand.getSize() > 1 ? sameSuit / (double) (hand.getSize() - 1) : 0;
+        return rankWeight * Card.rankOf(code) / 13.0 + suitMatchWeight * (suit == topSuit ? 1 : 0)
+                + suitKeptWeight * kept;
+    }
+
+    /**
+     * Name of AI, with its weights.
+     * @return "Weighted AI" and the weights.
+     */
+    @Override
+    public String toString() {
+        return "Weighted AI " + Arrays.toString(getWeights());
+    }
+}
@@ -0,0 +1,113 @@
+package student;
+
+/**
+ * A win rate measured over some number of games, together with its Wilson score
+ * confidence interval. The Wilson interval stays accurate for win rates near 0 or 1,
+ * where lopsided matchups settle after only a few hundred games.
+ */
+public final class WinRateEstimate {
+
+    /**
+     * z value of a two-sided 95% confidence interval.
+     */
+    public static final double Z_95 = 1.959963984540054;
+
+    /**
+     * Number of games won by player 1.
+     */
+    private final long wins;
+
+    /**
+     * Number of games played.
+     */
+    private final long games;
+
+    /**
+     * Lower end of the confidence interval.
+     */
+    private final double lower;
+
+    /**
+     * Upper end of the confidence interval.
+     */
+    private final double upper;
+
+    /**
+     * Creates the estimate of a win count, with a Wilson score interval for the given z value.
+     * @param wins number of games won by player 1.
+     * @param games number of games played, at least 1.
+     * @param z z value of the confidence interval, such as Z_95.
+     */
+    public WinRateEstimate(long wins, long games, double z) {
+        if (games < 1 || wins < 0 || wins > games) {
+            throw new IllegalArgumentException("Invalid win count: " + wins + " of " + games);
+        }
+        this.wins = wins;
+        this.games = games;
+
+        // Wilson score interval
+        double p = wins / (double) games;
+        double z2n = z * z / games;
+        double center = (p + z2n / 2) / (1 + z2n);
+        double halfWidth = z / (1 + z2n) * Math.sqrt(p * (1 - p) / games + z2n / (4 * games));
+        this.lower = Math.max(0, center - halfWidth);
+        this.upper = Math.min(1, center + halfWidth);
+    }
+
+    /**
+     * Gets the measured win rate of player 1.
+     * @return fraction of games won by player 1.
+     */
+    public double getWinRate() {
+        return wins / (double) games;
+    }
+
+    /**
+     * Gets the number of games won by player 1.
+     * @return number of games won.
+     */
+    public long getWins() {
+        return wins;
+    }
+
+    /**
+     * Gets the number of games the estimate is based on.
+     * @return number of games played.
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Gets the lower end of the confidence interval.
+     * @return lower end of the interval.
+     */
+    public double getLower() {
+        return lower;
+    }
+
+    /**
+     * Gets the upper end of the confidence interval.
+     * @return upper end of the interval.
+     */
+    public double getUpper() {
+        return upper;
+    }
+
+    /**
+     * Gets the width of the confidence interval.
+     * @return upper minus lower end of the interval.
+     */
+    public double getWidth() {
+        return upper - lower;
+    }
+
+    /**
+     * Describes the estimate.
+     * @return win rate, interval and number of games as a string.
+     */
+    @Override
+    public String toString() {
+        return String.format("%.3f [%.3f, %.3f] in %d games", getWinRate(), lower, upper, games);
+    }
+}